@@ -0,0 +1,117 @@
+package com.library_spring_mvc.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.library_spring_mvc.entity.Author;
+import com.library_spring_mvc.entity.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of a {@code Page<Book>} with nested authors, using the application's own
+ * ObjectMapper builder so that Boot's and Spring Data's customisations are part of the measurement.
+ * Compares the JSON, Smile and CBOR encodings the API negotiates, with and without Blackbird; the
+ * payload size of each encoding is printed at the start of its trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class BookPageSerializationBenchmark {
+
+    private static final TypeReference<List<Book>> BOOK_LIST = new TypeReference<>() {
+    };
+
+    @Param({"20", "100", "1000"})
+    public int pageSize;
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    @Param({"true", "false"})
+    public boolean blackbird;
+
+    private ConfigurableApplicationContext context;
+    private ObjectMapper objectMapper;
+    private Page<Book> page;
+    private byte[] encodedBooks;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkApplication.start(0);
+        Jackson2ObjectMapperBuilder builder = context.getBean(Jackson2ObjectMapperBuilder.class);
+        if (!blackbird) {
+            builder.modulesToInstall(context.getBeansOfType(Module.class).values().stream()
+                    .filter(module -> !(module instanceof BlackbirdModule))
+                    .toArray(Module[]::new));
+        }
+        objectMapper = builder.factory(factory(format)).build();
+
+        List<Book> books = new ArrayList<>(pageSize);
+        for (int i = 1; i <= pageSize; i++) {
+            Author author = new Author((long) i % 10, BenchmarkApplication.authorName(i % 10), null, 0L);
+            books.add(new Book((long) i, "Book " + i, author, "genre " + i % 50, 0L));
+        }
+        page = new PageImpl<>(books, PageRequest.of(3, pageSize), 1_000_000);
+        encodedBooks = objectMapper.writeValueAsBytes(books);
+        System.out.printf("%n%s page of %d books: %d bytes%n", format, pageSize,
+                objectMapper.writeValueAsBytes(page).length);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void serializeToStream() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), page);
+    }
+
+    @Benchmark
+    public byte[] serializeToBytes() throws IOException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public List<Book> deserialize() throws IOException {
+        return objectMapper.readValue(encodedBooks, BOOK_LIST);
+    }
+
+    private static JsonFactory factory(String format) {
+        return switch (format) {
+            case "smile" -> new SmileFactory();
+            case "cbor" -> new CBORFactory();
+            default -> new JsonFactory();
+        };
+    }
+}
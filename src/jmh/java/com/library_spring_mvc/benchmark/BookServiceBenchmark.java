@@ -0,0 +1,100 @@
+package com.library_spring_mvc.benchmark;
+
+import com.library_spring_mvc.dto.BookDTO;
+import com.library_spring_mvc.entity.Book;
+import com.library_spring_mvc.service.BookService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service-level read and write paths against an embedded H2 catalogue, including the JPA, Hibernate
+ * and connection pool overhead of each call. Run with {@code -prof gc} (the profile default) to see
+ * allocation per operation next to the latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class BookServiceBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+    // Listings are read from the front; deep offsets are what keyset pagination is for.
+    private static final int LISTED_PAGES = 50;
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private BookService bookService;
+    private int authors;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(rows);
+        bookService = context.getBean(BookService.class);
+        authors = BenchmarkApplication.authors(rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Book save() {
+        BookDTO book = new BookDTO();
+        book.setTitle("Benchmark book");
+        book.setGenre("benchmark");
+        book.setAuthorId((long) randomAuthor());
+        return bookService.save(book);
+    }
+
+    @Benchmark
+    public Optional<Book> findById() {
+        return bookService.findById(1L + ThreadLocalRandom.current().nextInt(rows));
+    }
+
+    @Benchmark
+    public Page<Book> findAllByAuthor() {
+        return bookService.findAllByAuthor(BenchmarkApplication.authorName(randomAuthor()), firstPage());
+    }
+
+    @Benchmark
+    public Page<Book> findAll() {
+        return bookService.findAll(randomPage());
+    }
+
+    private int randomAuthor() {
+        return 1 + ThreadLocalRandom.current().nextInt(authors);
+    }
+
+    private static Pageable firstPage() {
+        return PageRequest.of(0, PAGE_SIZE);
+    }
+
+    private Pageable randomPage() {
+        int pages = Math.min(LISTED_PAGES, rows / PAGE_SIZE);
+        return PageRequest.of(ThreadLocalRandom.current().nextInt(pages), PAGE_SIZE);
+    }
+}
@@ -0,0 +1,142 @@
+package com.library_spring_mvc.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caps the requests in flight at a limit that follows the database latency they observe. A short
+ * average tracks the latency of the last requests, a long one the latency the database normally has;
+ * while the short one stays close to the long one the limit grows by about its square root per sample,
+ * and once it rises above it the limit shrinks in proportion, down to half per sample. The limit only
+ * grows while at least half of it is in use, so an idle application does not drift to the maximum.
+ * <p>
+ * Admission is a compare-and-set on the in-flight count. A request that finds the limit reached may
+ * wait for a release, but no longer than its timeout and only while fewer than
+ * {@code maxQueueLength} requests are waiting already.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final double SHORT_WEIGHT = 0.1;
+    private static final double LONG_WEIGHT = 0.002;
+    // latency may rise by this factor before the limit starts to shrink
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueueLength;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private volatile int limit;
+    private double estimatedLimit;
+    private double shortLatency;
+    private double longLatency;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, int maxQueueLength) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueueLength = maxQueueLength;
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        if (tryAcquireNow()) {
+            return true;
+        }
+        long remaining = unit.toNanos(timeout);
+        if (remaining <= 0) {
+            return false;
+        }
+        if (waiting.incrementAndGet() > maxQueueLength) {
+            waiting.decrementAndGet();
+            return false;
+        }
+        try {
+            lock.lockInterruptibly();
+            try {
+                while (!tryAcquireNow()) {
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    remaining = released.awaitNanos(remaining);
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Gives back a permit. {@code latencyNanos} is the database latency the request observed, or a
+     * negative value when it did not use the database.
+     */
+    public void release(long latencyNanos) {
+        if (latencyNanos >= 0) {
+            sample(latencyNanos, inFlight.get());
+        }
+        inFlight.decrementAndGet();
+        // a waiter increments the count before it checks the in-flight count, so none is missed
+        if (waiting.get() > 0) {
+            lock.lock();
+            try {
+                released.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    private boolean tryAcquireNow() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private synchronized void sample(long latencyNanos, int inFlightAtRelease) {
+        if (longLatency == 0) {
+            shortLatency = latencyNanos;
+            longLatency = latencyNanos;
+            return;
+        }
+        shortLatency += (latencyNanos - shortLatency) * SHORT_WEIGHT;
+        longLatency += (latencyNanos - longLatency) * LONG_WEIGHT;
+        // after a long slow period let the baseline recover quickly once the database does
+        if (longLatency > 2 * shortLatency) {
+            longLatency *= 0.95;
+        }
+        if (inFlightAtRelease < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longLatency / shortLatency));
+        double target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit,
+                estimatedLimit * (1 - SMOOTHING) + target * SMOOTHING));
+        limit = (int) estimatedLimit;
+    }
+}
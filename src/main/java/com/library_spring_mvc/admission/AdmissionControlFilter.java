@@ -0,0 +1,170 @@
+package com.library_spring_mvc.admission;
+
+import com.library_spring_mvc.monitoring.SqlStatementCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admits requests to the book and author API in two steps, before they reach a controller or the
+ * connection pool. First the client's {@link TokenBucketRateLimiter token bucket}, keyed by the remote
+ * address, answers 429 with the time until its next token in {@code Retry-After}. Unlike a header, a
+ * client cannot pick a fresh address for every request; behind a proxy, set
+ * {@code server.forward-headers-strategy} so that the address is the client's rather than the proxy's.
+ * Then the {@link AdaptiveConcurrencyLimit} admits the request, possibly after waiting up to
+ * {@code maxQueueTime} for a slot, or answers 503.
+ * <p>
+ * An export streams the whole catalogue for as long as the client reads, which would hold a slot of
+ * the adaptive limit and report its latency for far longer than any other request. Exports therefore
+ * have their own fixed limit of concurrent streams instead.
+ * <p>
+ * Runs inside {@code SqlStatementCountingFilter}, whose per-request statistics give the concurrency
+ * limit the database latency of every request it admitted.
+ */
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final List<String> ADMITTED_PATHS = List.of("/api/books", "/api/authors");
+    private static final String EXPORT_PATH = "/api/books/export";
+
+    private final TokenBucketRateLimiter rateLimiter;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final long maxQueueTimeNanos;
+    private final Semaphore exports;
+    private final Counter rateLimited;
+    private final Counter overloaded;
+    private final Counter exportLimited;
+    private final Timer admittedWait;
+    private final Timer rejectedWait;
+
+    public AdmissionControlFilter(TokenBucketRateLimiter rateLimiter,
+                                  AdaptiveConcurrencyLimit concurrencyLimit,
+                                  Duration maxQueueTime,
+                                  int maxConcurrentExports,
+                                  MeterRegistry meterRegistry) {
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimit = concurrencyLimit;
+        this.maxQueueTimeNanos = maxQueueTime.toNanos();
+        this.exports = new Semaphore(maxConcurrentExports);
+        this.rateLimited = rejections("rate-limit", meterRegistry);
+        this.overloaded = rejections("concurrency-limit", meterRegistry);
+        this.exportLimited = rejections("export-limit", meterRegistry);
+        this.admittedWait = queueWait("admitted", meterRegistry);
+        this.rejectedWait = queueWait("rejected", meterRegistry);
+        Gauge.builder("admission.concurrency.limit", concurrencyLimit, AdaptiveConcurrencyLimit::getLimit)
+                .description("Current limit on requests in flight")
+                .register(meterRegistry);
+        Gauge.builder("admission.concurrency.in-flight", concurrencyLimit, AdaptiveConcurrencyLimit::getInFlight)
+                .description("Admitted requests in flight")
+                .register(meterRegistry);
+        Gauge.builder("admission.queue.length", concurrencyLimit, AdaptiveConcurrencyLimit::getWaiting)
+                .description("Requests waiting for a slot")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = path(request);
+        return ADMITTED_PATHS.stream().noneMatch(path::startsWith);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long tokenWaitNanos = rateLimiter.tryAcquire(request.getRemoteAddr());
+        if (tokenWaitNanos > 0) {
+            rateLimited.increment();
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, TimeUnit.NANOSECONDS.toSeconds(tokenWaitNanos) + 1,
+                    "Too many requests from this client, retry later");
+            return;
+        }
+
+        if (path(request).equals(EXPORT_PATH)) {
+            if (!exports.tryAcquire()) {
+                exportLimited.increment();
+                reject(response, HttpStatus.SERVICE_UNAVAILABLE, 10, "Too many exports running, retry later");
+                return;
+            }
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                exports.release();
+            }
+            return;
+        }
+
+        long queuedAt = System.nanoTime();
+        boolean admitted;
+        try {
+            admitted = concurrencyLimit.tryAcquire(maxQueueTimeNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        (admitted ? admittedWait : rejectedWait).record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+        if (!admitted) {
+            overloaded.increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1, "Server is busy, retry later");
+            return;
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            concurrencyLimit.release(databaseLatency());
+        }
+    }
+
+    // average statement time, which unlike the total does not depend on how much the endpoint queries
+    private static long databaseLatency() {
+        SqlStatementCounter.Statistics statistics = SqlStatementCounter.current();
+        if (statistics == null || statistics.getStatementCount() == 0) {
+            return -1;
+        }
+        return statistics.getElapsedNanos() / statistics.getStatementCount();
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds,
+                               String message) throws IOException {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.getWriter().write(message);
+    }
+
+    private static Counter rejections(String reason, MeterRegistry meterRegistry) {
+        return Counter.builder("admission.rejections")
+                .description("Requests shed before reaching a controller")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static Timer queueWait(String outcome, MeterRegistry meterRegistry) {
+        return Timer.builder("admission.queue.wait")
+                .description("Time a request waited for a concurrency slot")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
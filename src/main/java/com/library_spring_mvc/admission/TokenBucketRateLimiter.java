@@ -0,0 +1,56 @@
+package com.library_spring_mvc.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket per client: {@code requestsPerSecond} sustained, up to {@code burst} at once. Each
+ * bucket is a single atomic holding the time at which it will be full again (the generic cell rate
+ * algorithm), so taking a token is one compare-and-set and clients never contend with each other.
+ * A bucket that has not been used for a whole burst window is full anyway and is simply forgotten.
+ */
+public class TokenBucketRateLimiter {
+
+    private final long emissionIntervalNanos;
+    private final long burstWindowNanos;
+    private final LongSupplier nanoClock;
+    private final Cache<String, AtomicLong> buckets;
+
+    public TokenBucketRateLimiter(double requestsPerSecond, int burst, long maxClients) {
+        this(requestsPerSecond, burst, maxClients, System::nanoTime);
+    }
+
+    TokenBucketRateLimiter(double requestsPerSecond, int burst, long maxClients, LongSupplier nanoClock) {
+        this.emissionIntervalNanos = (long) (1_000_000_000L / requestsPerSecond);
+        this.burstWindowNanos = emissionIntervalNanos * burst;
+        this.nanoClock = nanoClock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(Duration.ofNanos(burstWindowNanos))
+                .build();
+    }
+
+    /**
+     * Takes a token from the client's bucket. Returns 0 when one was available, otherwise how many
+     * nanoseconds until the next one will be.
+     */
+    public long tryAcquire(String clientId) {
+        AtomicLong fullAt = buckets.get(clientId, id -> new AtomicLong(nanoClock.getAsLong()));
+        while (true) {
+            long now = nanoClock.getAsLong();
+            long current = fullAt.get();
+            long next = Math.max(current, now) + emissionIntervalNanos;
+            long allowedAt = next - burstWindowNanos;
+            if (allowedAt > now) {
+                return allowedAt - now;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
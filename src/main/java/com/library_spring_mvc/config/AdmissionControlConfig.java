@@ -0,0 +1,35 @@
+package com.library_spring_mvc.config;
+
+import com.library_spring_mvc.admission.AdaptiveConcurrencyLimit;
+import com.library_spring_mvc.admission.AdmissionControlFilter;
+import com.library_spring_mvc.admission.TokenBucketRateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Puts {@link AdmissionControlFilter} in front of the book and author API when
+ * {@code library.admission.enabled} is set.
+ */
+@Configuration
+@ConditionalOnProperty("library.admission.enabled")
+@EnableConfigurationProperties(AdmissionControlProperties.class)
+public class AdmissionControlConfig {
+
+    @Bean
+    public AdmissionControlFilter admissionControlFilter(AdmissionControlProperties properties,
+                                                         MeterRegistry meterRegistry) {
+        AdmissionControlProperties.RateLimit rateLimit = properties.getRateLimit();
+        AdmissionControlProperties.Concurrency concurrency = properties.getConcurrency();
+        return new AdmissionControlFilter(
+                new TokenBucketRateLimiter(rateLimit.getRequestsPerSecond(), rateLimit.getBurst(),
+                        rateLimit.getMaxClients()),
+                new AdaptiveConcurrencyLimit(concurrency.getInitialLimit(), concurrency.getMinLimit(),
+                        concurrency.getMaxLimit(), concurrency.getMaxQueueLength()),
+                concurrency.getMaxQueueTime(),
+                properties.getExport().getMaxConcurrent(),
+                meterRegistry);
+    }
+}
@@ -0,0 +1,59 @@
+package com.library_spring_mvc.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties("library.admission")
+public class AdmissionControlProperties {
+
+    private boolean enabled;
+
+    private RateLimit rateLimit = new RateLimit();
+
+    private Concurrency concurrency = new Concurrency();
+
+    private Export export = new Export();
+
+    @Data
+    public static class RateLimit {
+
+        private double requestsPerSecond = 50;
+
+        /**
+         * Requests a client may send at once after being idle.
+         */
+        private int burst = 100;
+
+        /**
+         * Clients tracked at once; the least recently seen beyond this start over with a full bucket.
+         */
+        private long maxClients = 100_000;
+    }
+
+    @Data
+    public static class Concurrency {
+
+        private int initialLimit = 20;
+        private int minLimit = 4;
+        private int maxLimit = 200;
+
+        /**
+         * How long a request may wait for a slot before it is answered with 503.
+         */
+        private Duration maxQueueTime = Duration.ofMillis(50);
+
+        private int maxQueueLength = 100;
+    }
+
+    @Data
+    public static class Export {
+
+        /**
+         * Exports streamed at once; they are not subject to the adaptive concurrency limit.
+         */
+        private int maxConcurrent = 2;
+    }
+}
@@ -0,0 +1,43 @@
+package com.library_spring_mvc.config;
+
+import com.library_spring_mvc.monitoring.SlowQueryLogger;
+import com.library_spring_mvc.monitoring.SqlStatementCounter;
+import io.micrometer.core.instrument.Metrics;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration
+public class DataSourceProxyConfig {
+
+    // Post-processors are created before the meter registry exists, so the slow-query counter is
+    // registered with the global registry, which Boot links to the application's registries.
+    @Bean
+    public static BeanPostProcessor sqlStatementCountingDataSourcePostProcessor(Environment environment) {
+        boolean logSlowQueries = environment.getProperty("library.slow-query.enabled", Boolean.class, false);
+        Duration threshold = environment.getProperty("library.slow-query.threshold", Duration.class,
+                Duration.ofMillis(200));
+        double sampleRate = environment.getProperty("library.slow-query.sample-rate", Double.class, 1.0);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    ProxyDataSourceBuilder builder = ProxyDataSourceBuilder.create(dataSource)
+                            .name(beanName)
+                            .listener(new SqlStatementCounter());
+                    if (logSlowQueries) {
+                        builder.listener(new SlowQueryLogger(threshold, sampleRate, Metrics.globalRegistry));
+                    }
+                    return builder.build();
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package com.library_spring_mvc.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Lets {@code library.flyway.migrate-on-startup=false} skip the migration at startup. Unlike
+ * {@code spring.flyway.enabled}, which the AOT-processed build of the fast-startup profile decides
+ * once at build time, this is read when the application starts, so the class-data sharing training
+ * run can refresh the context without a database.
+ */
+@Configuration
+public class FlywayConfig {
+
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(
+            @Value("${library.flyway.migrate-on-startup:true}") boolean migrateOnStartup) {
+        return flyway -> {
+            if (migrateOnStartup) {
+                flyway.migrate();
+            }
+        };
+    }
+}
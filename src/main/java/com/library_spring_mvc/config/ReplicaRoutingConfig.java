@@ -0,0 +1,83 @@
+package com.library_spring_mvc.config;
+
+import com.library_spring_mvc.datasource.ReadWriteRoutingDataSource;
+import com.library_spring_mvc.datasource.ReadYourWrites;
+import com.library_spring_mvc.datasource.ReadYourWritesFilter;
+import com.library_spring_mvc.datasource.ReplicaPool;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Replaces the auto-configured data source with a primary pool for writes and a pool per
+ * {@code library.datasource.replicas[n]} for read-only transactions. Without replicas the
+ * application keeps the single auto-configured data source.
+ */
+@Configuration
+@ConditionalOnProperty("library.datasource.replicas[0].url")
+@EnableConfigurationProperties(ReplicaRoutingProperties.class)
+public class ReplicaRoutingConfig {
+
+    @Bean
+    public ReadYourWrites readYourWrites(ReplicaRoutingProperties properties) {
+        return new ReadYourWrites(properties.getReadYourWritesWindow());
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(ReadYourWrites readYourWrites) {
+        return new ReadYourWritesFilter(readYourWrites);
+    }
+
+    // The pools are not beans of their own, so the statement-counting proxy wraps only this one
+    // data source and every statement is counted once whichever database runs it.
+    @Bean
+    public DataSource dataSource(DataSourceProperties dataSourceProperties,
+                                 ReplicaRoutingProperties properties,
+                                 ReadYourWrites readYourWrites,
+                                 MeterRegistry meterRegistry,
+                                 Environment environment) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        if (primary.getPoolName() == null) {
+            primary.setPoolName("primary");
+        }
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<ReplicaRoutingProperties.Replica> configured = properties.getReplicas();
+        for (int index = 0; index < configured.size(); index++) {
+            ReplicaRoutingProperties.Replica replica = configured.get(index);
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName("replica-" + index);
+            pool.setJdbcUrl(replica.getUrl());
+            pool.setUsername(Objects.requireNonNullElse(replica.getUsername(), primary.getUsername()));
+            pool.setPassword(Objects.requireNonNullElse(replica.getPassword(), primary.getPassword()));
+            pool.setDriverClassName(dataSourceProperties.determineDriverClassName());
+            if (primary.getMaximumPoolSize() > 0) {
+                pool.setMaximumPoolSize(primary.getMaximumPoolSize());
+            }
+            pool.setConnectionTimeout(properties.getReplicaConnectionTimeout().toMillis());
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.put(pool.getPoolName(), pool);
+        }
+
+        ReplicaPool replicaPool = new ReplicaPool(primary, replicas, readYourWrites,
+                properties.getHealthCheckInterval(), meterRegistry);
+        return new ReadWriteRoutingDataSource(primary, replicaPool);
+    }
+}
@@ -0,0 +1,38 @@
+package com.library_spring_mvc.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties("library.datasource")
+public class ReplicaRoutingProperties {
+
+    /**
+     * Read replicas of {@code spring.datasource}; credentials default to those of the primary.
+     */
+    private List<Replica> replicas = new ArrayList<>();
+
+    /**
+     * How long after a committed change a client keeps reading from the primary.
+     */
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+
+    /**
+     * Kept short so that a replica that stopped answering is ejected before the request times out.
+     */
+    private Duration replicaConnectionTimeout = Duration.ofSeconds(2);
+
+    @Data
+    public static class Replica {
+
+        private String url;
+        private String username;
+        private String password;
+    }
+}
@@ -1,18 +1,28 @@
 package com.library_spring_mvc.controller;
 
+import com.library_spring_mvc.dto.AuthorDeletionJob;
+import com.library_spring_mvc.dto.BatchGetRequest;
+import com.library_spring_mvc.dto.BatchGetResponse;
+import com.library_spring_mvc.dto.CacheStatistics;
 import com.library_spring_mvc.entity.Author;
+import com.library_spring_mvc.service.AuthorDeletionService;
 import com.library_spring_mvc.service.AuthorService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/authors")
 public class AuthorController {
 
     private final AuthorService authorService;
+    private final AuthorDeletionService authorDeletionService;
 
-    public AuthorController(AuthorService authorService) {
+    public AuthorController(AuthorService authorService, AuthorDeletionService authorDeletionService) {
         this.authorService = authorService;
+        this.authorDeletionService = authorDeletionService;
     }
 
     @PostMapping
@@ -21,9 +31,28 @@ public class AuthorController {
         return ResponseEntity.ok(author);
     }
 
+    @PostMapping("/batch-get")
+    public ResponseEntity<BatchGetResponse<Author>> getAuthorsById(@RequestBody BatchGetRequest request) {
+        return ResponseEntity.ok(authorService.findAuthorsById(request.getIds()));
+    }
+
+    @GetMapping("/cache-stats")
+    public ResponseEntity<List<CacheStatistics>> getCacheStatistics() {
+        return ResponseEntity.ok(authorService.cacheStatistics());
+    }
+
+    // Large authors are deleted in the background: 202 with the job to poll instead of 204.
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteAuthor(@PathVariable("id") Long id) {
-        authorService.deleteAuthorById(id);
-        return ResponseEntity.noContent().build();
+    public ResponseEntity<AuthorDeletionJob> deleteAuthor(@PathVariable("id") Long id) {
+        return authorDeletionService.delete(id)
+                .map(job -> ResponseEntity.accepted()
+                        .location(URI.create("/api/authors/deletions/" + job.getId()))
+                        .body(job))
+                .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+
+    @GetMapping("/deletions/{jobId}")
+    public ResponseEntity<AuthorDeletionJob> getDeletionJob(@PathVariable("jobId") String jobId) {
+        return ResponseEntity.ok(authorDeletionService.job(jobId));
     }
 }
@@ -1,51 +1,218 @@
 package com.library_spring_mvc.controller;
 
+import com.library_spring_mvc.dto.AutocompleteSuggestion;
+import com.library_spring_mvc.dto.BatchGetRequest;
+import com.library_spring_mvc.dto.BatchGetResponse;
 import com.library_spring_mvc.dto.BookDTO;
+import com.library_spring_mvc.dto.BookImportReport;
+import com.library_spring_mvc.dto.BookSummary;
+import com.library_spring_mvc.dto.CursorPage;
 import com.library_spring_mvc.entity.Book;
+import com.library_spring_mvc.service.BookExportService;
+import com.library_spring_mvc.service.BookImportService;
 import com.library_spring_mvc.service.BookService;
+import com.library_spring_mvc.service.BookWriteBatcher;
+import com.library_spring_mvc.service.CatalogueChangeCounter;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/books")
 public class BookController {
 
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
     private final BookService bookService;
+    private final BookImportService bookImportService;
+    private final BookExportService bookExportService;
+    private final CatalogueChangeCounter catalogueChangeCounter;
+    private final BookWriteBatcher bookWriteBatcher;
 
     @Autowired
-    public BookController(BookService bookService) {
+    public BookController(BookService bookService,
+                          BookImportService bookImportService,
+                          BookExportService bookExportService,
+                          CatalogueChangeCounter catalogueChangeCounter,
+                          BookWriteBatcher bookWriteBatcher) {
         this.bookService = bookService;
+        this.bookImportService = bookImportService;
+        this.bookExportService = bookExportService;
+        this.catalogueChangeCounter = catalogueChangeCounter;
+        this.bookWriteBatcher = bookWriteBatcher;
     }
 
     @GetMapping
-    public Page<Book> getAllBooks(Pageable pageable) {
-        return bookService.findAll(pageable);
+    public Page<Book> getAllBooks(@RequestParam(value = "genre", required = false) String genre,
+                                  Pageable pageable, WebRequest request) {
+        if (catalogueNotModified(request)) {
+            return null;
+        }
+        return genre == null ? bookService.findAll(pageable) : bookService.findAllByGenre(genre, pageable);
+    }
+
+    @GetMapping(params = {"fields", "!after"})
+    public Page<Map<String, Object>> getAllBooksWithFields(@RequestParam("fields") String fields,
+                                                           @RequestParam(value = "genre", required = false) String genre,
+                                                           Pageable pageable, WebRequest request) {
+        if (catalogueNotModified(request)) {
+            return null;
+        }
+        return genre == null
+                ? bookService.findAllWithFields(fields, pageable)
+                : bookService.findAllByGenreWithFields(genre, fields, pageable);
+    }
+
+    @GetMapping("/summary")
+    public Page<BookSummary> getAllBookSummaries(@RequestParam(value = "genre", required = false) String genre,
+                                                 Pageable pageable, WebRequest request) {
+        if (catalogueNotModified(request)) {
+            return null;
+        }
+        return genre == null ? bookService.findAllSummaries(pageable) : bookService.findAllSummariesByGenre(genre, pageable);
+    }
+
+    @GetMapping(params = "after")
+    public CursorPage<Book> getAllBooksAfter(@RequestParam("after") String after,
+                                             @RequestParam(value = "size", defaultValue = "20") int size,
+                                             @RequestParam(value = "genre", required = false) String genre,
+                                             WebRequest request) {
+        if (catalogueNotModified(request)) {
+            return null;
+        }
+        return genre == null
+                ? bookService.findAllAfter(after, size)
+                : bookService.findAllByGenreAfter(genre, after, size);
+    }
+
+    @GetMapping("/search")
+    public Page<Book> searchBooks(@RequestParam("q") String query, Pageable pageable, WebRequest request) {
+        if (catalogueNotModified(request)) {
+            return null;
+        }
+        return bookService.search(query, pageable);
+    }
+
+    @GetMapping("/autocomplete")
+    public List<AutocompleteSuggestion> autocomplete(@RequestParam("prefix") String prefix,
+                                                     @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return bookService.autocomplete(prefix, limit);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void exportBooks(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        bookExportService.exportNdjson(response.getOutputStream());
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Optional<Book>> getBookById(@PathVariable Long id) {
-        return ResponseEntity.ok(bookService.findById(id));
+    public ResponseEntity<Optional<Book>> getBookById(@PathVariable Long id, WebRequest request) {
+        // a conditional poll only needs the version column, not the book and its author
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && bookService.findVersionById(id).filter(version -> request.checkNotModified(eTag(id, version, request)))
+                        .isPresent()) {
+            return null;
+        }
+        Optional<Book> book = bookService.findById(id);
+        return ResponseEntity.ok().eTag(eTag(id, book.get().getVersion(), request)).body(book);
+    }
+
+    @PostMapping("/batch-get")
+    public BatchGetResponse<Book> getBooksById(@RequestBody BatchGetRequest request) {
+        return bookService.findAllById(request.getIds());
     }
 
     @GetMapping("/title/{title}")
-    public ResponseEntity<Optional<Book>> getBookByTitle(@PathVariable String title) {
-        return ResponseEntity.ok(bookService.findByTitle(title));
+    public ResponseEntity<Optional<Book>> getBookByTitle(@PathVariable String title, WebRequest request) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && bookService.findVersionByTitle(title)
+                        .filter(version -> request.checkNotModified(eTag(version.getId(), version.getVersion(), request)))
+                        .isPresent()) {
+            return null;
+        }
+        Optional<Book> book = bookService.findByTitle(title);
+        return ResponseEntity.ok().eTag(eTag(book.get().getId(), book.get().getVersion(), request)).body(book);
     }
 
     @GetMapping("/author_name/{name}")
-    public Page<Book> getAllBookByAuthorName(@PathVariable String name, Pageable pageable) {
+    public Page<Book> getAllBookByAuthorName(@PathVariable String name, Pageable pageable, WebRequest request) {
+        if (catalogueNotModified(request)) {
+            return null;
+        }
         return bookService.findAllByAuthor(name, pageable);
     }
 
+    @GetMapping(value = "/author_name/{name}", params = {"fields", "!after"})
+    public Page<Map<String, Object>> getAllBookByAuthorNameWithFields(@PathVariable String name,
+                                                                      @RequestParam("fields") String fields,
+                                                                      Pageable pageable,
+                                                                      WebRequest request) {
+        if (catalogueNotModified(request)) {
+            return null;
+        }
+        return bookService.findAllByAuthorWithFields(name, fields, pageable);
+    }
+
+    @GetMapping("/author_name/{name}/summary")
+    public Page<BookSummary> getAllBookSummariesByAuthorName(@PathVariable String name, Pageable pageable,
+                                                             WebRequest request) {
+        if (catalogueNotModified(request)) {
+            return null;
+        }
+        return bookService.findAllSummariesByAuthor(name, pageable);
+    }
+
+    @GetMapping(value = "/author_name/{name}", params = "after")
+    public CursorPage<Book> getAllBookByAuthorNameAfter(@PathVariable String name,
+                                                        @RequestParam("after") String after,
+                                                        @RequestParam(value = "size", defaultValue = "20") int size,
+                                                        WebRequest request) {
+        if (catalogueNotModified(request)) {
+            return null;
+        }
+        return bookService.findAllByAuthorAfter(name, after, size);
+    }
+
     @PostMapping
     public ResponseEntity<Book> addBook(@RequestBody BookDTO bookDTO) {
-        return ResponseEntity.ok(bookService.save(bookDTO));    
+        return ResponseEntity.ok(bookWriteBatcher.isEnabled()
+                ? bookWriteBatcher.save(bookDTO)
+                : bookService.save(bookDTO));
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<BookImportReport> importBooksFromNdjson(InputStream body) throws IOException {
+        return ResponseEntity.ok(bookImportService.importNdjson(body));
+    }
+
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<BookImportReport> importBooksFromCsv(InputStream body) throws IOException {
+        return ResponseEntity.ok(bookImportService.importCsv(body));
+    }
+
+    @PostMapping(value = "/import", consumes = "application/x-jackson-smile")
+    public ResponseEntity<BookImportReport> importBooksFromSmile(InputStream body) throws IOException {
+        return ResponseEntity.ok(bookImportService.importSmile(body));
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_CBOR_VALUE)
+    public ResponseEntity<BookImportReport> importBooksFromCbor(InputStream body) throws IOException {
+        return ResponseEntity.ok(bookImportService.importCbor(body));
     }
 
     @PutMapping("/{id}")
@@ -58,4 +225,48 @@ public class BookController {
         bookService.delete(id);
         return ResponseEntity.noContent().build();
     }
+
+    // Also sets the ETag on the response; a null return is then answered with 304.
+    private boolean catalogueNotModified(WebRequest request) {
+        return request.checkNotModified(catalogueChangeCounter.eTag() + formatSuffix(request));
+    }
+
+    private static String eTag(Long id, Long version, WebRequest request) {
+        return "\"" + id + "-" + version + formatSuffix(request) + "\"";
+    }
+
+    // A Smile or CBOR body is not the same bytes as the JSON one of the same version, so it gets an ETag
+    // of its own; JSON keeps the plain one. Picks the format the converters will: the acceptable type
+    // of the highest quality, a concrete type before a wildcard, and JSON for a wildcard.
+    private static String formatSuffix(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return "";
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException ex) {
+            return "";
+        }
+        MediaType chosen = null;
+        for (MediaType type : accepted) {
+            if (!type.isCompatibleWith(MediaType.APPLICATION_JSON) && !type.isCompatibleWith(SMILE)
+                    && !type.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+                continue;
+            }
+            if (chosen == null || type.getQualityValue() > chosen.getQualityValue()
+                    || (type.getQualityValue() == chosen.getQualityValue()
+                            && chosen.isWildcardSubtype() && !type.isWildcardSubtype())) {
+                chosen = type;
+            }
+        }
+        if (chosen == null || chosen.isWildcardSubtype()) {
+            return "";
+        }
+        if (chosen.equalsTypeAndSubtype(SMILE)) {
+            return "-smile";
+        }
+        return chosen.equalsTypeAndSubtype(MediaType.APPLICATION_CBOR) ? "-cbor" : "";
+    }
 }
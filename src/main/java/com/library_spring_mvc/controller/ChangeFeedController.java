@@ -0,0 +1,40 @@
+package com.library_spring_mvc.controller;
+
+import com.library_spring_mvc.service.ChangeFeed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+
+/**
+ * Server-Sent Events stream of committed book and author changes, for clients that keep a copy of
+ * the catalogue. A reconnecting EventSource sends the id of the last event it received in
+ * {@code Last-Event-ID} and continues from there.
+ */
+@RestController
+@RequestMapping("/api/changes")
+public class ChangeFeedController {
+
+    private final ChangeFeed changeFeed;
+    private final Duration timeout;
+
+    @Autowired
+    public ChangeFeedController(ChangeFeed changeFeed,
+                                @Value("${library.change-feed.timeout:PT30M}") Duration timeout) {
+        this.changeFeed = changeFeed;
+        this.timeout = timeout;
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        changeFeed.subscribe(emitter, lastEventId);
+        return emitter;
+    }
+}
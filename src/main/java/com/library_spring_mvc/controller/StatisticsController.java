@@ -0,0 +1,28 @@
+package com.library_spring_mvc.controller;
+
+import com.library_spring_mvc.dto.AuthorBookCount;
+import com.library_spring_mvc.dto.CatalogueStatistics;
+import com.library_spring_mvc.service.CatalogueStatisticsService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/statistics")
+public class StatisticsController {
+
+    private final CatalogueStatisticsService catalogueStatisticsService;
+
+    public StatisticsController(CatalogueStatisticsService catalogueStatisticsService) {
+        this.catalogueStatisticsService = catalogueStatisticsService;
+    }
+
+    @GetMapping
+    public ResponseEntity<CatalogueStatistics> getStatistics(@RequestParam(value = "top", defaultValue = "10") int top) {
+        return ResponseEntity.ok(catalogueStatisticsService.statistics(top));
+    }
+
+    @GetMapping("/authors/{id}")
+    public ResponseEntity<AuthorBookCount> getBooksByAuthor(@PathVariable("id") Long id) {
+        return ResponseEntity.ok(catalogueStatisticsService.booksByAuthor(id));
+    }
+}
@@ -0,0 +1,35 @@
+package com.library_spring_mvc.datasource;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Sends read-only transactions to the {@link ReplicaPool} and everything else to the primary. The
+ * connection is only fetched at the first statement, after the transaction manager has marked it
+ * read-only, which is what lets a {@code @Transactional(readOnly = true)} method reach a replica.
+ */
+public class ReadWriteRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    private final ReplicaPool replicaPool;
+
+    public ReadWriteRoutingDataSource(DataSource primary, ReplicaPool replicaPool) {
+        super(primary);
+        this.replicaPool = replicaPool;
+        setReadOnlyDataSource(replicaPool);
+    }
+
+    public ReplicaPool getReplicaPool() {
+        return replicaPool;
+    }
+
+    @Override
+    public void close() throws IOException {
+        replicaPool.close();
+        if (getTargetDataSource() instanceof Closeable primary) {
+            primary.close();
+        }
+    }
+}
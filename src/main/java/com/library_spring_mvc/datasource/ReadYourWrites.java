@@ -0,0 +1,76 @@
+package com.library_spring_mvc.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.library_spring_mvc.event.AuthorChangedEvent;
+import com.library_spring_mvc.event.BookChangedEvent;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+
+/**
+ * Remembers which clients committed a change in the last {@code library.datasource.read-your-writes-window}
+ * and pins their requests to the primary, so that a client never reads a replica that has not caught
+ * up with its own write yet. The client of the current request is set by {@link ReadYourWritesFilter};
+ * a write also pins the rest of the request that made it.
+ */
+public class ReadYourWrites {
+
+    private static final int MAX_TRACKED_CLIENTS = 100_000;
+
+    private final Cache<String, Boolean> recentWriters;
+    private final ThreadLocal<ClientRequest> currentRequest = new ThreadLocal<>();
+
+    public ReadYourWrites(Duration window) {
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(MAX_TRACKED_CLIENTS)
+                .expireAfterWrite(window)
+                .build();
+    }
+
+    public void begin(String clientId) {
+        currentRequest.set(new ClientRequest(clientId, recentWriters.getIfPresent(clientId) != null));
+    }
+
+    public void end() {
+        currentRequest.remove();
+    }
+
+    public boolean isPinnedToPrimary() {
+        ClientRequest request = currentRequest.get();
+        return request != null && request.pinned;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        recordWrite();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAuthorChanged(AuthorChangedEvent event) {
+        recordWrite();
+    }
+
+    /**
+     * Marks the client of the current request as a recent writer. Called by the change listeners
+     * above, and directly by code that commits on behalf of a request on another thread.
+     */
+    public void recordWrite() {
+        ClientRequest request = currentRequest.get();
+        if (request != null) {
+            request.pinned = true;
+            recentWriters.put(request.clientId, Boolean.TRUE);
+        }
+    }
+
+    private static final class ClientRequest {
+
+        private final String clientId;
+        private boolean pinned;
+
+        private ClientRequest(String clientId, boolean pinned) {
+            this.clientId = clientId;
+            this.pinned = pinned;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.library_spring_mvc.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Identifies the client of a request by its {@value #CLIENT_ID_HEADER} header, or by its address
+ * when the header is absent, for {@link ReadYourWrites}.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String CLIENT_ID_HEADER = "X-Client-Id";
+
+    private final ReadYourWrites readYourWrites;
+
+    public ReadYourWritesFilter(ReadYourWrites readYourWrites) {
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String clientId = request.getHeader(CLIENT_ID_HEADER);
+        readYourWrites.begin(clientId == null || clientId.isBlank() ? request.getRemoteAddr() : clientId);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            readYourWrites.end();
+        }
+    }
+}
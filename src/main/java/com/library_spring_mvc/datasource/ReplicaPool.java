@@ -0,0 +1,170 @@
+package com.library_spring_mvc.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out connections for read-only transactions, round-robin over the replicas that passed their
+ * last health check. A replica that fails to give a connection is ejected at once and readmitted by
+ * the next health check that finds it valid. Requests pinned by {@link ReadYourWrites}, and all reads
+ * while no replica is healthy, go to the primary.
+ */
+public class ReplicaPool extends AbstractDataSource implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaPool.class);
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final ReadYourWrites readYourWrites;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter primaryReads;
+    private final ScheduledExecutorService healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replica-health-check");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ReplicaPool(DataSource primary,
+                       Map<String, DataSource> replicas,
+                       ReadYourWrites readYourWrites,
+                       Duration healthCheckInterval,
+                       MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.readYourWrites = readYourWrites;
+        replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource, meterRegistry)));
+        this.primaryReads = readCounter("primary", meterRegistry);
+        Gauge.builder("datasource.replicas.healthy", this, ReplicaPool::healthyReplicas)
+                .description("Replicas currently receiving reads")
+                .register(meterRegistry);
+        long intervalMillis = healthCheckInterval.toMillis();
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connect(DataSource::getConnection);
+    }
+
+    // Hikari pools have fixed credentials and refuse these, which says nothing about the replica's health.
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connect(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            boolean valid;
+            SQLException failure = null;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                valid = connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException ex) {
+                valid = false;
+                failure = ex;
+            }
+            if (valid && !replica.healthy) {
+                log.info("Replica {} passed its health check and receives reads again", replica.name);
+                replica.healthy = true;
+            } else if (!valid) {
+                eject(replica, failure);
+            }
+        }
+    }
+
+    public int healthyReplicas() {
+        return (int) replicas.stream().filter(replica -> replica.healthy).count();
+    }
+
+    @Override
+    public void close() throws IOException {
+        healthChecker.shutdownNow();
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private Connection connect(ConnectionSource source) throws SQLException {
+        if (!readYourWrites.isPinnedToPrimary()) {
+            int start = next.getAndIncrement();
+            for (int attempt = 0; attempt < replicas.size(); attempt++) {
+                Replica replica = replicas.get(Math.floorMod(start + attempt, replicas.size()));
+                if (!replica.healthy) {
+                    continue;
+                }
+                try {
+                    Connection connection = source.connect(replica.dataSource);
+                    replica.reads.increment();
+                    return connection;
+                } catch (SQLFeatureNotSupportedException ex) {
+                    throw ex;
+                } catch (SQLException ex) {
+                    eject(replica, ex);
+                }
+            }
+        }
+        primaryReads.increment();
+        return source.connect(primary);
+    }
+
+    private void eject(Replica replica, SQLException cause) {
+        if (replica.healthy) {
+            log.warn("Ejecting replica {} from reads: {}", replica.name,
+                    cause == null ? "connection is not valid" : cause.getMessage());
+            replica.healthy = false;
+            replica.ejections.increment();
+        }
+    }
+
+    private static Counter readCounter(String target, MeterRegistry meterRegistry) {
+        return Counter.builder("datasource.reads")
+                .description("Read-only connections handed out, by the database that served them")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection connect(DataSource dataSource) throws SQLException;
+    }
+
+    private static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private final Counter reads;
+        private final Counter ejections;
+        private volatile boolean healthy = true;
+
+        private Replica(String name, DataSource dataSource, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.reads = readCounter(name, meterRegistry);
+            this.ejections = Counter.builder("datasource.replica.ejections")
+                    .description("Times the replica was taken out of the read rotation")
+                    .tag("replica", name)
+                    .register(meterRegistry);
+        }
+    }
+}
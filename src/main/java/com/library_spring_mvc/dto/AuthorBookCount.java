@@ -0,0 +1,14 @@
+package com.library_spring_mvc.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AuthorBookCount {
+    private Long authorId;
+    private String name;
+    private long books;
+}
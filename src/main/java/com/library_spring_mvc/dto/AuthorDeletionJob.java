@@ -0,0 +1,23 @@
+package com.library_spring_mvc.dto;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class AuthorDeletionJob {
+
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+
+    // Written by the deletion thread and read by status polls.
+    private final String id;
+    private final long authorId;
+    private final long totalBooks;
+    private final Instant submittedAt;
+    private volatile Status status = Status.PENDING;
+    private volatile long deletedBooks;
+    private volatile Instant finishedAt;
+    private volatile String error;
+}
@@ -0,0 +1,13 @@
+package com.library_spring_mvc.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AuthorName {
+    private Long id;
+    private String name;
+}
@@ -0,0 +1,14 @@
+package com.library_spring_mvc.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AutocompleteSuggestion {
+    private String text;
+    private String type;
+    private long books;
+}
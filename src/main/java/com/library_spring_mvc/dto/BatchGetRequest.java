@@ -0,0 +1,14 @@
+package com.library_spring_mvc.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchGetRequest {
+    private List<Long> ids;
+}
@@ -0,0 +1,15 @@
+package com.library_spring_mvc.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchGetResponse<T> {
+    private List<T> found;
+    private List<Long> missing;
+}
@@ -0,0 +1,16 @@
+package com.library_spring_mvc.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookExportRow {
+    private Long id;
+    private String title;
+    private String genre;
+    private Long authorId;
+    private String authorName;
+}
@@ -0,0 +1,17 @@
+package com.library_spring_mvc.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class BookImportReport {
+    private long totalRows;
+    private long importedRows;
+    private long failedRows;
+    private long elapsedMillis;
+    private double rowsPerSecond;
+    private boolean errorsTruncated;
+    private List<BookImportError> errors = new ArrayList<>();
+}
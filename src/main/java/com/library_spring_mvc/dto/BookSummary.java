@@ -0,0 +1,7 @@
+package com.library_spring_mvc.dto;
+
+public interface BookSummary {
+    Long getId();
+
+    String getTitle();
+}
@@ -0,0 +1,22 @@
+package com.library_spring_mvc.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CatalogueStatistics {
+    private long totalBooks;
+    private long totalAuthors;
+    private Map<String, Long> booksPerGenre;
+    private List<AuthorBookCount> topAuthors;
+    private List<GenreBookCount> topGenres;
+    private Instant reconciledAt;
+    private long lastReconciliationDrift;
+}
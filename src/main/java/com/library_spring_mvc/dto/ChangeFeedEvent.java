@@ -0,0 +1,25 @@
+package com.library_spring_mvc.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.library_spring_mvc.event.BookSnapshot;
+import com.library_spring_mvc.event.ChangeType;
+import lombok.Value;
+
+/**
+ * One committed change as sent on the change feed. {@code book} is the book after the change, or
+ * before it for a deletion; author changes carry only the name.
+ */
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChangeFeedEvent {
+
+    public static final String BOOK = "book";
+    public static final String AUTHOR = "author";
+
+    long sequence;
+    String entity;
+    ChangeType type;
+    Long id;
+    BookSnapshot book;
+    String authorName;
+}
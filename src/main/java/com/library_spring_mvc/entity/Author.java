@@ -22,7 +22,13 @@ public class Author {
     @Column(name = "author_name")
     private String name;
 
-    @OneToMany(mappedBy = "author", cascade = CascadeType.REMOVE, orphanRemoval = true)
+    // No cascade: AuthorService deletes the books with chunked bulk deletes before the author.
+    @OneToMany(mappedBy = "author")
     @JsonIgnore
     private List<Book> books;
+
+    @Version
+    @Column(name = "version", columnDefinition = "bigint default 0 not null")
+    @JsonIgnore
+    private Long version;
 }
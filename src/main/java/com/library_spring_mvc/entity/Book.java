@@ -1,5 +1,6 @@
 package com.library_spring_mvc.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -10,7 +11,8 @@ import lombok.*;
 @Table(name = "books")
 public class Book {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "books_seq")
+    @SequenceGenerator(name = "books_seq", sequenceName = "books_seq", allocationSize = 50)
     @Column(name = "id")
     private Long id;
 
@@ -21,6 +23,12 @@ public class Book {
     @JoinColumn(name = "author_id")
     private Author author;
 
-    @Column(name = "genre")
+    @Convert(converter = GenreConverter.class)
+    @Column(name = "genre_id")
     private String genre;
-}
\ No newline at end of file
+
+    @Version
+    @Column(name = "version", columnDefinition = "bigint default 0 not null")
+    @JsonIgnore
+    private Long version;
+}
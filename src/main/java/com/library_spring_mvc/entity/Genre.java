@@ -0,0 +1,25 @@
+package com.library_spring_mvc.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Dictionary row for a genre name. Books reference it by id through {@link GenreConverter}, so the
+ * name is stored once instead of on every book row.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "genres")
+public class Genre {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "genre_id")
+    private Integer id;
+
+    @Column(name = "genre_name", nullable = false, unique = true)
+    private String name;
+}
@@ -0,0 +1,32 @@
+package com.library_spring_mvc.entity;
+
+import com.library_spring_mvc.service.GenreDictionary;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps {@link Book#getGenre()} to the {@code genre_id} column through the in-memory
+ * {@link GenreDictionary}. It only looks ids up: whoever writes a book resolves its genre first, so
+ * that a new genre is inserted in the writer's transaction rather than in the middle of a flush.
+ */
+@Component
+@Converter
+public class GenreConverter implements AttributeConverter<String, Integer> {
+
+    private final GenreDictionary genreDictionary;
+
+    public GenreConverter(GenreDictionary genreDictionary) {
+        this.genreDictionary = genreDictionary;
+    }
+
+    @Override
+    public Integer convertToDatabaseColumn(String name) {
+        return genreDictionary.idOf(name);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer id) {
+        return id == null ? null : genreDictionary.nameOf(id);
+    }
+}
@@ -0,0 +1,10 @@
+package com.library_spring_mvc.event;
+
+import lombok.Value;
+
+@Value
+public class AuthorChangedEvent {
+    ChangeType type;
+    Long authorId;
+    String name;
+}
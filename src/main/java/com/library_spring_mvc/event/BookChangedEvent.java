@@ -0,0 +1,26 @@
+package com.library_spring_mvc.event;
+
+import lombok.Value;
+
+@Value
+public class BookChangedEvent {
+    ChangeType type;
+    BookSnapshot before;
+    BookSnapshot after;
+
+    public static BookChangedEvent created(BookSnapshot book) {
+        return new BookChangedEvent(ChangeType.CREATED, null, book);
+    }
+
+    public static BookChangedEvent updated(BookSnapshot before, BookSnapshot after) {
+        return new BookChangedEvent(ChangeType.UPDATED, before, after);
+    }
+
+    public static BookChangedEvent deleted(BookSnapshot book) {
+        return new BookChangedEvent(ChangeType.DELETED, book, null);
+    }
+
+    public Long getBookId() {
+        return after != null ? after.getId() : before.getId();
+    }
+}
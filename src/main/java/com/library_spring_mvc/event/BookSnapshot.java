@@ -0,0 +1,21 @@
+package com.library_spring_mvc.event;
+
+import com.library_spring_mvc.entity.Author;
+import com.library_spring_mvc.entity.Book;
+import lombok.Value;
+
+@Value
+public class BookSnapshot {
+    Long id;
+    String title;
+    String genre;
+    Long authorId;
+    String authorName;
+
+    public static BookSnapshot of(Book book) {
+        Author author = book.getAuthor();
+        return new BookSnapshot(book.getId(), book.getTitle(), book.getGenre(),
+                author != null ? author.getId() : null,
+                author != null ? author.getName() : null);
+    }
+}
@@ -0,0 +1,7 @@
+package com.library_spring_mvc.event;
+
+public enum ChangeType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
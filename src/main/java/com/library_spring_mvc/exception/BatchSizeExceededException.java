@@ -0,0 +1,5 @@
+package com.library_spring_mvc.exception;
+
+public class BatchSizeExceededException extends RuntimeException {
+    public BatchSizeExceededException(String message) {super(message);}
+}
@@ -0,0 +1,5 @@
+package com.library_spring_mvc.exception;
+
+public class DeletionJobNotFoundException extends RuntimeException {
+    public DeletionJobNotFoundException(String message) {super(message);}
+}
@@ -0,0 +1,5 @@
+package com.library_spring_mvc.exception;
+
+public class GroupCommitUnavailableException extends RuntimeException {
+    public GroupCommitUnavailableException(String message) {super(message);}
+}
@@ -0,0 +1,5 @@
+package com.library_spring_mvc.exception;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message) {super(message);}
+}
@@ -0,0 +1,5 @@
+package com.library_spring_mvc.exception;
+
+public class InvalidFieldException extends RuntimeException {
+    public InvalidFieldException(String message) {super(message);}
+}
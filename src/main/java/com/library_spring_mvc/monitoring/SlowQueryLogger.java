@@ -0,0 +1,55 @@
+package com.library_spring_mvc.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Replacement for {@code show-sql} in production: only statements slower than the threshold are
+ * logged, and only a sample of those, so that a slow database cannot also flood the logs. The
+ * {@code jdbc.statements.slow} counter sees every slow statement regardless of sampling.
+ */
+public class SlowQueryLogger implements QueryExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowQueryLogger.class);
+
+    private final long thresholdMillis;
+    private final double sampleRate;
+    private final Counter slowStatements;
+
+    public SlowQueryLogger(Duration threshold, double sampleRate, MeterRegistry meterRegistry) {
+        this.thresholdMillis = threshold.toMillis();
+        this.sampleRate = sampleRate;
+        this.slowStatements = Counter.builder("jdbc.statements.slow")
+                .description("JDBC statements slower than the slow-query threshold")
+                .tag("threshold", threshold.toString())
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (execInfo.getElapsedTime() < thresholdMillis) {
+            return;
+        }
+        slowStatements.increment();
+        if (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            log.warn("Slow statement took {} ms (batch size {}, success {}): {}", execInfo.getElapsedTime(),
+                    execInfo.getBatchSize(), execInfo.isSuccess(), queryInfoList.stream()
+                            .map(QueryInfo::getQuery)
+                            .collect(Collectors.joining("; ")));
+        }
+    }
+}
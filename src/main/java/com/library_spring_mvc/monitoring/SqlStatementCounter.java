@@ -0,0 +1,57 @@
+package com.library_spring_mvc.monitoring;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.List;
+
+public class SqlStatementCounter implements QueryExecutionListener {
+
+    private static final ThreadLocal<Statistics> CURRENT = new ThreadLocal<>();
+
+    public static Statistics start() {
+        Statistics statistics = new Statistics();
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    public static Statistics current() {
+        return CURRENT.get();
+    }
+
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Statistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.statementStartedNanos = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Statistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.statementCount++;
+            statistics.elapsedNanos += System.nanoTime() - statistics.statementStartedNanos;
+        }
+    }
+
+    public static final class Statistics {
+        private int statementCount;
+        private long elapsedNanos;
+        private long statementStartedNanos;
+
+        public int getStatementCount() {
+            return statementCount;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.library_spring_mvc.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the SQL statements and JDBC time of every request. The final numbers are recorded as the
+ * {@code http.server.requests.sql.statements} and {@code http.server.requests.sql.time} metrics once
+ * the request is done.
+ * <p>
+ * The {@value #STATEMENT_COUNT_HEADER} and {@value #STATEMENT_TIME_HEADER} headers are only a partial
+ * count: headers have to go out before the body, so they hold what ran until the body was first
+ * written, and statements run while writing it, like those of a streamed export, are missing. A
+ * client that sends {@code TE: trailers} also gets the final numbers in the
+ * {@value #STATEMENT_COUNT_TRAILER} and {@value #STATEMENT_TIME_TRAILER} trailer fields, when the
+ * response is chunked.
+ */
+// Just outside the admission control filter, which reads the statistics once the request is done.
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class SqlStatementCountingFilter extends OncePerRequestFilter {
+
+    public static final String STATEMENT_COUNT_HEADER = "X-SQL-Statement-Count";
+    public static final String STATEMENT_TIME_HEADER = "X-SQL-Time-Ms";
+    public static final String STATEMENT_COUNT_TRAILER = "X-SQL-Statement-Count-Total";
+    public static final String STATEMENT_TIME_TRAILER = "X-SQL-Time-Ms-Total";
+
+    private final MeterRegistry meterRegistry;
+
+    public SqlStatementCountingFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlStatementCounter.Statistics statistics = SqlStatementCounter.start();
+        StampingResponse stampingResponse = new StampingResponse(response, statistics, acceptsTrailers(request));
+        try {
+            filterChain.doFilter(request, stampingResponse);
+        } finally {
+            SqlStatementCounter.stop();
+            stampingResponse.complete();
+            record(request, statistics);
+        }
+    }
+
+    // Trailers force a chunked response, so they are only sent to clients that asked for them.
+    private static boolean acceptsTrailers(HttpServletRequest request) {
+        String te = request.getHeader("TE");
+        if (te == null) {
+            return false;
+        }
+        for (String coding : te.split(",")) {
+            if (coding.trim().toLowerCase(Locale.ROOT).startsWith("trailers")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String millis(SqlStatementCounter.Statistics statistics) {
+        return String.format(Locale.ROOT, "%.3f", statistics.getElapsedNanos() / 1_000_000d);
+    }
+
+    private void record(HttpServletRequest request, SqlStatementCounter.Statistics statistics) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        DistributionSummary.builder("http.server.requests.sql.statements")
+                .description("SQL statements executed per HTTP request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(statistics.getStatementCount());
+        Timer.builder("http.server.requests.sql.time")
+                .description("Time spent in JDBC per HTTP request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(statistics.getElapsedNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    // Headers must be written before the body commits the response, so they are stamped
+    // the first time the handler asks for the output stream.
+    private static final class StampingResponse extends HttpServletResponseWrapper {
+
+        private final SqlStatementCounter.Statistics statistics;
+        private final boolean trailersAccepted;
+        private boolean completed;
+        private boolean stamped;
+
+        private StampingResponse(HttpServletResponse response, SqlStatementCounter.Statistics statistics,
+                                 boolean trailersAccepted) {
+            super(response);
+            this.statistics = statistics;
+            this.trailersAccepted = trailersAccepted;
+        }
+
+        private void complete() {
+            completed = true;
+            stamp();
+        }
+
+        private void stamp() {
+            if (stamped || isCommitted()) {
+                return;
+            }
+            stamped = true;
+            setHeader(STATEMENT_COUNT_HEADER, Integer.toString(statistics.getStatementCount()));
+            setHeader(STATEMENT_TIME_HEADER, millis(statistics));
+            if (!completed && trailersAccepted) {
+                offerTrailers();
+            }
+        }
+
+        // The supplier is called when the response ends, after counting has stopped.
+        private void offerTrailers() {
+            try {
+                setTrailerFields(() -> Map.of(
+                        STATEMENT_COUNT_TRAILER, Integer.toString(statistics.getStatementCount()),
+                        STATEMENT_TIME_TRAILER, millis(statistics)));
+            } catch (IllegalStateException notSupported) {
+                // HTTP/1.0 and unchunked responses cannot carry trailers
+                return;
+            }
+            setHeader(HttpHeaders.TRAILER, STATEMENT_COUNT_TRAILER + ", " + STATEMENT_TIME_TRAILER);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            stamp();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            stamp();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            stamp();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            stamp();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            stamp();
+            super.sendError(sc);
+        }
+    }
+}
@@ -1,13 +1,36 @@
 package com.library_spring_mvc.repository;
 
+import com.library_spring_mvc.dto.AuthorBookCount;
+import com.library_spring_mvc.dto.AuthorName;
 import com.library_spring_mvc.entity.Author;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface AuthorRepository extends JpaRepository<Author, Long> {
 
     boolean existsByName(String name);
 
     Optional<Author> findByName(String name);
+
+    // Inserting a book takes a key share lock on its author, which only FOR UPDATE conflicts with;
+    // PESSIMISTIC_WRITE is FOR NO KEY UPDATE on PostgreSQL and would let new books through.
+    @Query(value = "select author_id from author where author_id = :id for update", nativeQuery = true)
+    Optional<Long> lockById(@Param("id") Long id);
+
+    @Modifying
+    @Query("delete from Author a where a.id = :id")
+    int deleteAuthorById(@Param("id") Long id);
+
+    @Query("select new com.library_spring_mvc.dto.AuthorName(a.id, a.name) from Author a")
+    Stream<AuthorName> streamAllNames();
+
+    @Query("select new com.library_spring_mvc.dto.AuthorBookCount(a.id, a.name, count(b)) "
+            + "from Author a left join a.books b group by a.id, a.name")
+    List<AuthorBookCount> countBooksPerAuthor();
 }
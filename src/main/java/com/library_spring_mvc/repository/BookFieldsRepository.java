@@ -0,0 +1,12 @@
+package com.library_spring_mvc.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Map;
+
+public interface BookFieldsRepository {
+
+    Page<Map<String, Object>> findAllWithFields(List<String> fields, String authorName, String genre, Pageable pageable);
+}
@@ -0,0 +1,163 @@
+package com.library_spring_mvc.repository;
+
+import com.library_spring_mvc.entity.Author;
+import com.library_spring_mvc.entity.Book;
+import com.library_spring_mvc.exception.InvalidFieldException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class BookFieldsRepositoryImpl implements BookFieldsRepository {
+
+    private static final Set<String> SUPPORTED_FIELDS = Set.of("id", "title", "genre", "author.id", "author.name");
+
+    private final EntityManager entityManager;
+
+    public BookFieldsRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Page<Map<String, Object>> findAllWithFields(List<String> fields, String authorName, String genre,
+                                                       Pageable pageable) {
+        List<String> selected = normalize(fields);
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Book> book = query.from(Book.class);
+        Join<Book, Author> author = null;
+        if (authorName != null || selected.stream().anyMatch(field -> field.startsWith("author."))
+                || sortsByAuthor(pageable.getSort())) {
+            author = book.join("author", authorName != null ? JoinType.INNER : JoinType.LEFT);
+        }
+
+        List<Selection<?>> selections = new ArrayList<>(selected.size());
+        for (String field : selected) {
+            selections.add(path(book, author, field));
+        }
+        query.multiselect(selections);
+        query.where(filters(cb, book, author, authorName, genre));
+        query.orderBy(orders(cb, book, author, pageable.getSort()));
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        List<Map<String, Object>> content = typedQuery.getResultList().stream()
+                .map(tuple -> toFieldMap(tuple, selected))
+                .toList();
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(authorName, genre));
+    }
+
+    private long count(String authorName, String genre) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Book> book = query.from(Book.class);
+        query.select(cb.count(book));
+        query.where(filters(cb, book, authorName != null ? book.join("author") : null, authorName, genre));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static Predicate[] filters(CriteriaBuilder cb, Root<Book> book, Join<Book, Author> author,
+                                       String authorName, String genre) {
+        List<Predicate> filters = new ArrayList<>(2);
+        if (authorName != null) {
+            filters.add(cb.equal(author.get("name"), authorName));
+        }
+        if (genre != null) {
+            filters.add(cb.equal(book.get("genre"), genre));
+        }
+        return filters.toArray(new Predicate[0]);
+    }
+
+    private static List<String> normalize(List<String> fields) {
+        Set<String> selected = new LinkedHashSet<>();
+        for (String raw : fields) {
+            String field = raw.trim();
+            if (field.isEmpty()) {
+                continue;
+            }
+            if (field.equals("author")) {
+                selected.add("author.id");
+                selected.add("author.name");
+            } else if (SUPPORTED_FIELDS.contains(field)) {
+                selected.add(field);
+            } else {
+                throw new InvalidFieldException("Unsupported field: " + field
+                        + ". Supported fields are id, title, genre, author, author.id, author.name");
+            }
+        }
+        if (selected.isEmpty()) {
+            throw new InvalidFieldException("At least one field must be requested");
+        }
+        return new ArrayList<>(selected);
+    }
+
+    private static Path<?> path(Root<Book> book, Join<Book, Author> author, String field) {
+        return switch (field) {
+            case "author.id" -> author.get("id");
+            case "author.name" -> author.get("name");
+            default -> book.get(field);
+        };
+    }
+
+    private static boolean sortsByAuthor(Sort sort) {
+        return sort.stream().anyMatch(order -> order.getProperty().startsWith("author."));
+    }
+
+    private static List<Order> orders(CriteriaBuilder cb, Root<Book> book, Join<Book, Author> author, Sort sort) {
+        List<Order> orders = new ArrayList<>();
+        if (sort.isUnsorted()) {
+            orders.add(cb.asc(book.get("id")));
+        }
+        for (Sort.Order order : sort) {
+            if (!SUPPORTED_FIELDS.contains(order.getProperty())) {
+                throw new InvalidFieldException("Unsupported sort property: " + order.getProperty());
+            }
+            Path<?> path = path(book, author, order.getProperty());
+            orders.add(order.isAscending() ? cb.asc(path) : cb.desc(path));
+        }
+        return orders;
+    }
+
+    // Nested keys keep the same JSON shape as a fully serialized Book, e.g. author.name -> {"author": {"name": ...}}
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> toFieldMap(Tuple tuple, List<String> fields) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            String field = fields.get(i);
+            Object value = tuple.get(i);
+            int dot = field.indexOf('.');
+            if (dot < 0) {
+                row.put(field, value);
+            } else {
+                Map<String, Object> nested = (Map<String, Object>) row.computeIfAbsent(
+                        field.substring(0, dot), key -> new LinkedHashMap<String, Object>());
+                nested.put(field.substring(dot + 1), value);
+            }
+        }
+        return row;
+    }
+}
@@ -1,17 +1,98 @@
 package com.library_spring_mvc.repository;
 
+import com.library_spring_mvc.dto.BookExportRow;
+import com.library_spring_mvc.dto.GenreBookCount;
+import com.library_spring_mvc.dto.BookSummary;
+import com.library_spring_mvc.dto.BookVersion;
 import com.library_spring_mvc.entity.Book;
+import com.library_spring_mvc.event.BookSnapshot;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface BookRepository extends JpaRepository<Book, Long> {
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+public interface BookRepository extends JpaRepository<Book, Long>, BookFieldsRepository {
+    @Override
+    @EntityGraph(attributePaths = "author")
+    Page<Book> findAll(Pageable pageable);
+
+    @Override
+    @EntityGraph(attributePaths = "author")
+    List<Book> findAllById(Iterable<Long> ids);
+
+    @EntityGraph(attributePaths = "author")
     Optional<Book> findByTitle(String title);
 
-    Page<Book> findAllByAuthor_Name(String authorName, Pageable pageable);
+    // the derived query outer-joins the fetched author, which forces a scan of books before the name filter
+    @Query(value = "select b from Book b join fetch b.author a where a.name = :authorName",
+            countQuery = "select count(b) from Book b join b.author a where a.name = :authorName")
+    Page<Book> findAllByAuthor_Name(@Param("authorName") String authorName, Pageable pageable);
+
+    // b.genre is the dictionary id in SQL, so both queries are range scans of the (genre_id, id) index
+    @EntityGraph(attributePaths = "author")
+    Page<Book> findAllByGenre(String genre, Pageable pageable);
+
+    @Query("select b from Book b left join fetch b.author where b.genre = :genre and b.id > :cursor order by b.id")
+    List<Book> findPageByGenreAfter(@Param("genre") String genre, @Param("cursor") long cursor, Limit limit);
+
+    @Query("select new com.library_spring_mvc.dto.GenreBookCount(b.genre, count(b)) from Book b "
+            + "where b.genre is not null group by b.genre")
+    List<GenreBookCount> countBooksPerGenre();
+
+    long countByAuthor_Id(Long authorId);
+
+    @Query("select new com.library_spring_mvc.event.BookSnapshot(b.id, b.title, b.genre, a.id, a.name) "
+            + "from Book b join b.author a where a.id = :authorId and b.id > :after order by b.id")
+    List<BookSnapshot> findSnapshotsByAuthorAfter(@Param("authorId") Long authorId, @Param("after") long after,
+                                                  Limit limit);
+
+    @Modifying
+    @Query("delete from Book b where b.id in :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select b.version from Book b where b.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Query("select new com.library_spring_mvc.dto.BookVersion(b.id, b.version) from Book b where b.title = :title")
+    Optional<BookVersion> findVersionByTitle(@Param("title") String title);
 
     boolean existsByTitle(String title);
+
+    Page<BookSummary> findSummariesBy(Pageable pageable);
+
+    Page<BookSummary> findSummariesByGenre(String genre, Pageable pageable);
+
+    Page<BookSummary> findSummariesByAuthor_Name(String authorName, Pageable pageable);
+
+    @Query("select b from Book b left join fetch b.author where b.id > :cursor order by b.id")
+    List<Book> findPageAfter(@Param("cursor") long cursor, Limit limit);
+
+    @Query("select b from Book b join fetch b.author a where a.name = :authorName and b.id > :cursor order by b.id")
+    List<Book> findPageByAuthorNameAfter(@Param("authorName") String authorName,
+                                         @Param("cursor") long cursor,
+                                         Limit limit);
+
+    @Query("select new com.library_spring_mvc.dto.BookExportRow(b.id, b.title, b.genre, a.id, a.name) " +
+            "from Book b left join b.author a order by b.id")
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    Stream<BookExportRow> streamAllForExport();
 }
@@ -0,0 +1,102 @@
+package com.library_spring_mvc.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.library_spring_mvc.dto.CacheStatistics;
+import com.library_spring_mvc.entity.Author;
+import com.library_spring_mvc.repository.AuthorRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Component
+public class AuthorCache implements MeterBinder {
+
+    private final AuthorRepository authorRepository;
+    private final Cache<Long, Author> authorsById;
+    private final Cache<String, Author> authorsByName;
+
+    @Autowired
+    public AuthorCache(AuthorRepository authorRepository,
+                       @Value("${library.author-cache.maximum-size:10000}") long maximumSize,
+                       @Value("${library.author-cache.ttl:10m}") Duration ttl) {
+        this.authorRepository = authorRepository;
+        this.authorsById = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.authorsByName = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public Optional<Author> findById(Long id) {
+        return Optional.ofNullable(authorsById.get(id, key -> authorRepository.findById(key)
+                .map(this::detachedCopy)
+                .orElse(null)));
+    }
+
+    // Only the ids that are not cached yet are loaded, with a single IN query.
+    public Map<Long, Author> findAllById(Collection<Long> ids) {
+        return authorsById.getAll(ids, missing -> authorRepository.findAllById(List.copyOf(missing)).stream()
+                .map(this::detachedCopy)
+                .collect(Collectors.toMap(Author::getId, Function.identity())));
+    }
+
+    public Optional<Author> findByName(String name) {
+        return Optional.ofNullable(authorsByName.get(name, key -> authorRepository.findByName(key)
+                .map(this::detachedCopy)
+                .orElse(null)));
+    }
+
+    public void evict(Author author) {
+        if (author.getId() != null) {
+            evictById(author.getId());
+        }
+        if (author.getName() != null) {
+            authorsByName.invalidate(author.getName());
+        }
+    }
+
+    public void evictById(Long id) {
+        authorsById.invalidate(id);
+        authorsByName.asMap().values().removeIf(cached -> id.equals(cached.getId()));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, authorsById, "authorsById");
+        CaffeineCacheMetrics.monitor(registry, authorsByName, "authorsByName");
+    }
+
+    public List<CacheStatistics> statistics() {
+        return List.of(toStatistics("authorsById", authorsById), toStatistics("authorsByName", authorsByName));
+    }
+
+    // Cached authors are shared between requests, so never hand out an instance
+    // that is attached to someone's persistence context.
+    private Author detachedCopy(Author author) {
+        return new Author(author.getId(), author.getName(), null, author.getVersion());
+    }
+
+    private static CacheStatistics toStatistics(String name, Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        return new CacheStatistics(name, cache.estimatedSize(), stats.hitCount(), stats.missCount(),
+                stats.hitRate(), stats.evictionCount());
+    }
+}
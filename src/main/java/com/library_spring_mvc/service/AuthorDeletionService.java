@@ -0,0 +1,114 @@
+package com.library_spring_mvc.service;
+
+import com.library_spring_mvc.dto.AuthorDeletionJob;
+import com.library_spring_mvc.exception.DeletionJobNotFoundException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Deletes small authors inline and hands authors with more than
+ * {@code library.author-delete.async-threshold} books to a single background thread, so a large
+ * deletion neither holds a request thread nor competes with other deletions for the database.
+ * Finished jobs stay pollable for {@code library.author-delete.job-retention}.
+ */
+@Service
+public class AuthorDeletionService {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthorDeletionService.class);
+
+    private final AuthorService authorService;
+    private final long asyncThreshold;
+    private final Duration jobRetention;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "author-deletion");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, AuthorDeletionJob> jobs = new ConcurrentHashMap<>();
+    private final Map<Long, AuthorDeletionJob> activeJobsByAuthor = new ConcurrentHashMap<>();
+
+    @Autowired
+    public AuthorDeletionService(AuthorService authorService,
+                                 @Value("${library.author-delete.async-threshold:10000}") long asyncThreshold,
+                                 @Value("${library.author-delete.job-retention:1h}") Duration jobRetention) {
+        this.authorService = authorService;
+        this.asyncThreshold = asyncThreshold;
+        this.jobRetention = jobRetention;
+    }
+
+    /**
+     * Returns empty when the author was deleted before returning, or the job that will delete it.
+     * Deleting an author that already has a job running returns that job.
+     */
+    public Optional<AuthorDeletionJob> delete(long authorId) {
+        AuthorDeletionJob active = activeJobsByAuthor.get(authorId);
+        if (active != null) {
+            return Optional.of(active);
+        }
+        long books = authorService.countBooks(authorId);
+        if (books <= asyncThreshold) {
+            authorService.deleteAuthorById(authorId);
+            return Optional.empty();
+        }
+
+        evictFinishedJobs();
+        AuthorDeletionJob job = new AuthorDeletionJob(UUID.randomUUID().toString(), authorId, books, Instant.now());
+        AuthorDeletionJob existing = activeJobsByAuthor.putIfAbsent(authorId, job);
+        if (existing != null) {
+            return Optional.of(existing);
+        }
+        jobs.put(job.getId(), job);
+        executor.execute(() -> run(job));
+        return Optional.of(job);
+    }
+
+    public AuthorDeletionJob job(String jobId) {
+        AuthorDeletionJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new DeletionJobNotFoundException("Deletion job not found with id: " + jobId);
+        }
+        return job;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(AuthorDeletionJob job) {
+        job.setStatus(AuthorDeletionJob.Status.RUNNING);
+        try {
+            authorService.deleteAuthorById(job.getAuthorId(),
+                    deleted -> job.setDeletedBooks(job.getDeletedBooks() + deleted));
+            job.setFinishedAt(Instant.now());
+            job.setStatus(AuthorDeletionJob.Status.COMPLETED);
+        } catch (RuntimeException ex) {
+            log.warn("Deletion job {} for author {} failed after {} books", job.getId(), job.getAuthorId(),
+                    job.getDeletedBooks(), ex);
+            job.setError(NestedExceptionUtils.getMostSpecificCause(ex).getMessage());
+            job.setFinishedAt(Instant.now());
+            job.setStatus(AuthorDeletionJob.Status.FAILED);
+        } finally {
+            activeJobsByAuthor.remove(job.getAuthorId(), job);
+        }
+    }
+
+    private void evictFinishedJobs() {
+        Instant cutoff = Instant.now().minus(jobRetention);
+        jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(cutoff));
+    }
+}
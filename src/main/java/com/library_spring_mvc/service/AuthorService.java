@@ -1,45 +1,155 @@
 package com.library_spring_mvc.service;
 
+import com.library_spring_mvc.datasource.ReadYourWrites;
+import com.library_spring_mvc.dto.BatchGetResponse;
+import com.library_spring_mvc.dto.CacheStatistics;
 import com.library_spring_mvc.entity.Author;
+import com.library_spring_mvc.event.AuthorChangedEvent;
+import com.library_spring_mvc.event.BookChangedEvent;
+import com.library_spring_mvc.event.BookSnapshot;
+import com.library_spring_mvc.event.ChangeType;
 import com.library_spring_mvc.exception.AuthorNotFoundException;
 import com.library_spring_mvc.repository.AuthorRepository;
+import com.library_spring_mvc.repository.BookRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.function.LongConsumer;
 
 @Service
 public class AuthorService {
 
     private final AuthorRepository authorRepository;
+    private final BookRepository bookRepository;
+    private final AuthorCache authorCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final SingleFlight<Long, Optional<Author>> authorById;
+    private final SingleFlight<String, Optional<Author>> authorByName;
 
     @Autowired
-    public AuthorService(AuthorRepository authorRepository) {
+    public AuthorService(AuthorRepository authorRepository,
+                         BookRepository bookRepository,
+                         AuthorCache authorCache,
+                         ApplicationEventPublisher eventPublisher,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${library.author-delete.chunk-size:1000}") int chunkSize,
+                         ObjectProvider<ReadYourWrites> readYourWrites,
+                         MeterRegistry meterRegistry) {
         this.authorRepository = authorRepository;
+        this.bookRepository = bookRepository;
+        this.authorCache = authorCache;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.authorById = new SingleFlight<>("author.by-id", readYourWrites, meterRegistry);
+        this.authorByName = new SingleFlight<>("author.by-name", readYourWrites, meterRegistry);
     }
 
+    @Transactional
     public void addAuthor(Author author) {
         authorRepository.save(author);
+        authorCache.evict(author);
+        eventPublisher.publishEvent(new AuthorChangedEvent(ChangeType.CREATED, author.getId(), author.getName()));
     }
 
     public Optional<Author> findAuthorById(long id) {
-        if (!authorRepository.existsById(id)) {
+        // coalesced in front of the cache, whose loader would hold up other keys of the same bin
+        Optional<Author> author = authorById.execute(id, () -> authorCache.findById(id));
+        if (author.isEmpty()) {
             throw new AuthorNotFoundException("Author not found with id: " + id);
         }
-        return authorRepository.findById(id);
+        return author;
+    }
+
+    public BatchGetResponse<Author> findAuthorsById(List<Long> ids) {
+        return BatchLookup.resolve(ids, chunk -> authorCache.findAllById(chunk).values(), Author::getId);
     }
 
     public Optional<Author> findAuthorByName(String name) {
-        if (!authorRepository.existsByName(name)) {
+        Optional<Author> author = authorByName.execute(name, () -> authorCache.findByName(name));
+        if (author.isEmpty()) {
             throw new AuthorNotFoundException("Author not found with id: " + name);
         }
-        return authorRepository.findByName(name);
+        return author;
     }
 
-    public void deleteAuthorById(long id) {
+    public long countBooks(long id) {
         if (!authorRepository.existsById(id)) {
             throw new AuthorNotFoundException("Author not found with id: " + id);
         }
-        authorRepository.deleteById(id);
+        return bookRepository.countByAuthor_Id(id);
+    }
+
+    public void deleteAuthorById(long id) {
+        deleteAuthorById(id, deleted -> {
+        });
+    }
+
+    /**
+     * Deletes the author's books in chunks of {@code library.author-delete.chunk-size}, each chunk one
+     * bulk {@code DELETE} in its own short transaction, then the author itself. Books are never loaded
+     * as entities; only the snapshot columns needed for the change events are read.
+     * <p>
+     * The deletion is not atomic: if it fails part way, the chunks already deleted stay deleted and
+     * the author remains, so it can simply be retried. The last transaction locks the author row before
+     * deleting the books that were added meanwhile, so the author is never deleted with books left.
+     */
+    public void deleteAuthorById(long id, LongConsumer progress) {
+        Author author = authorRepository.findById(id)
+                .orElseThrow(() -> new AuthorNotFoundException("Author not found with id: " + id));
+
+        long after = 0;
+        List<BookSnapshot> chunk;
+        do {
+            long from = after;
+            chunk = transactionTemplate.execute(status -> deleteBookChunk(id, from));
+            if (!chunk.isEmpty()) {
+                after = chunk.get(chunk.size() - 1).getId();
+                progress.accept(chunk.size());
+            }
+        } while (chunk.size() == chunkSize);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // With the author locked no book can be added to it any more, so whatever was added while
+            // the chunks were deleted goes now, however many chunks that takes.
+            authorRepository.lockById(id);
+            long remainingAfter = 0;
+            List<BookSnapshot> remaining;
+            do {
+                remaining = deleteBookChunk(id, remainingAfter);
+                if (!remaining.isEmpty()) {
+                    remainingAfter = remaining.get(remaining.size() - 1).getId();
+                    progress.accept(remaining.size());
+                }
+            } while (remaining.size() == chunkSize);
+            authorRepository.deleteAuthorById(id);
+            eventPublisher.publishEvent(new AuthorChangedEvent(ChangeType.DELETED, author.getId(), author.getName()));
+        });
+        authorCache.evict(author);
+    }
+
+    private List<BookSnapshot> deleteBookChunk(long authorId, long after) {
+        List<BookSnapshot> books = bookRepository.findSnapshotsByAuthorAfter(authorId, after, Limit.of(chunkSize));
+        if (!books.isEmpty()) {
+            bookRepository.deleteAllByIdIn(books.stream().map(BookSnapshot::getId).toList());
+            books.forEach(book -> eventPublisher.publishEvent(BookChangedEvent.deleted(book)));
+        }
+        return books;
+    }
+
+    public List<CacheStatistics> cacheStatistics() {
+        return authorCache.statistics();
     }
 }
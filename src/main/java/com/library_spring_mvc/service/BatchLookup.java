@@ -0,0 +1,55 @@
+package com.library_spring_mvc.service;
+
+import com.library_spring_mvc.dto.BatchGetResponse;
+import com.library_spring_mvc.exception.BatchSizeExceededException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Resolves a client-supplied id list with one {@code IN (...)} query per chunk. Duplicates and
+ * nulls are dropped, found items keep the order of the request and ids that matched nothing are
+ * reported as missing.
+ */
+final class BatchLookup {
+
+    static final int MAX_IDS = 1000;
+    static final int CHUNK_SIZE = 500;
+
+    private BatchLookup() {
+    }
+
+    static <T> BatchGetResponse<T> resolve(List<Long> ids, Function<List<Long>, Collection<T>> loader,
+                                           Function<T, Long> idOf) {
+        List<Long> requested = ids == null ? List.of()
+                : new ArrayList<>(new LinkedHashSet<>(ids.stream().filter(Objects::nonNull).toList()));
+        if (requested.size() > MAX_IDS) {
+            throw new BatchSizeExceededException("At most " + MAX_IDS + " ids can be requested at once, got "
+                    + requested.size());
+        }
+
+        Map<Long, T> loaded = new HashMap<>(requested.size() * 2);
+        for (int from = 0; from < requested.size(); from += CHUNK_SIZE) {
+            List<Long> chunk = requested.subList(from, Math.min(from + CHUNK_SIZE, requested.size()));
+            loader.apply(chunk).forEach(item -> loaded.put(idOf.apply(item), item));
+        }
+
+        List<T> found = new ArrayList<>(loaded.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : requested) {
+            T item = loaded.get(id);
+            if (item != null) {
+                found.add(item);
+            } else {
+                missing.add(id);
+            }
+        }
+        return new BatchGetResponse<>(found, missing);
+    }
+}
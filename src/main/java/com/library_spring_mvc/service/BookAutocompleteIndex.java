@@ -0,0 +1,239 @@
+package com.library_spring_mvc.service;
+
+import com.library_spring_mvc.dto.AuthorName;
+import com.library_spring_mvc.dto.AutocompleteSuggestion;
+import com.library_spring_mvc.dto.BookExportRow;
+import com.library_spring_mvc.event.AuthorChangedEvent;
+import com.library_spring_mvc.event.BookChangedEvent;
+import com.library_spring_mvc.event.BookSnapshot;
+import com.library_spring_mvc.event.ChangeType;
+import com.library_spring_mvc.repository.AuthorRepository;
+import com.library_spring_mvc.repository.BookRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+@Component
+public class BookAutocompleteIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(BookAutocompleteIndex.class);
+
+    public static final String TITLE = "title";
+    public static final String AUTHOR = "author";
+
+    // Rough per-entry cost of a skip list node, its index levels, the entry record and two String headers.
+    private static final long ENTRY_OVERHEAD_BYTES = 128;
+    // Rough per-id cost of a hash map node, the boxed id and what it points to; the strings are shared.
+    private static final long ID_OVERHEAD_BYTES = 64;
+
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private volatile Dictionary dictionary = new Dictionary();
+    private List<Object> changesDuringRebuild;
+
+    @Autowired
+    public BookAutocompleteIndex(BookRepository bookRepository,
+                                 AuthorRepository authorRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry) {
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        Gauge.builder("autocomplete.entries", this, index -> index.dictionary.titles.size())
+                .tag("type", TITLE)
+                .register(meterRegistry);
+        Gauge.builder("autocomplete.entries", this, index -> index.dictionary.authors.size())
+                .tag("type", AUTHOR)
+                .register(meterRegistry);
+        Gauge.builder("autocomplete.memory", this, BookAutocompleteIndex::estimatedMemoryBytes)
+                .description("Estimated heap used by the autocomplete dictionaries")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (this) {
+            changesDuringRebuild = new ArrayList<>();
+        }
+
+        long started = System.nanoTime();
+        Dictionary rebuilt = new Dictionary();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<AuthorName> authors = authorRepository.streamAllNames()) {
+                authors.forEach(author -> rebuilt.addAuthor(author.getId(), author.getName()));
+            }
+            try (Stream<BookExportRow> rows = bookRepository.streamAllForExport()) {
+                rows.forEach(row -> rebuilt.addBook(row.getId(), row.getTitle(), row.getAuthorName()));
+            }
+        });
+
+        synchronized (this) {
+            // the snapshot may already contain some of these changes, which replaying only sets again
+            changesDuringRebuild.forEach(rebuilt::apply);
+            changesDuringRebuild = null;
+            dictionary = rebuilt;
+        }
+        log.info("Autocomplete rebuilt with {} titles and {} authors in {} ms",
+                rebuilt.titles.size(), rebuilt.authors.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onBookChanged(BookChangedEvent event) {
+        record(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onAuthorChanged(AuthorChangedEvent event) {
+        record(event);
+    }
+
+    public List<AutocompleteSuggestion> complete(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Dictionary current = dictionary;
+        List<AutocompleteSuggestion> suggestions = new ArrayList<>(limit);
+        collect(current.titles, key, TITLE, limit, suggestions);
+        collect(current.authors, key, AUTHOR, limit, suggestions);
+        suggestions.sort((left, right) -> normalize(left.getText()).compareTo(normalize(right.getText())));
+        return suggestions.size() > limit ? suggestions.subList(0, limit) : suggestions;
+    }
+
+    public long estimatedMemoryBytes() {
+        Dictionary current = dictionary;
+        return current.titles.size() * ENTRY_OVERHEAD_BYTES + current.authors.size() * ENTRY_OVERHEAD_BYTES
+                + (current.books.size() + current.authorNames.size()) * ID_OVERHEAD_BYTES + current.characters;
+    }
+
+    private void record(Object event) {
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.add(event);
+        }
+        dictionary.apply(event);
+    }
+
+    private static void collect(ConcurrentNavigableMap<String, Entry> entries, String prefix, String type,
+                                int limit, List<AutocompleteSuggestion> suggestions) {
+        int added = 0;
+        for (Entry entry : entries.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values()) {
+            if (added++ == limit) {
+                return;
+            }
+            suggestions.add(new AutocompleteSuggestion(entry.text(), type, entry.books()));
+        }
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.strip().toLowerCase(Locale.ROOT);
+    }
+
+    private record Entry(String text, long references, long books) {
+    }
+
+    private record IndexedBook(String title, String authorName) {
+    }
+
+    // Mutated only while holding the BookAutocompleteIndex monitor; readers go through the
+    // lock-free skip lists and always see a complete immutable Entry. What each book and author
+    // contributes is kept by id, so applying a change sets their state rather than adding to it
+    // and a change the dictionary already reflects leaves it as it is.
+    private static final class Dictionary {
+
+        private final ConcurrentSkipListMap<String, Entry> titles = new ConcurrentSkipListMap<>();
+        private final ConcurrentSkipListMap<String, Entry> authors = new ConcurrentSkipListMap<>();
+        private final Map<Long, IndexedBook> books = new HashMap<>();
+        private final Map<Long, String> authorNames = new HashMap<>();
+        private volatile long characters;
+
+        private void apply(Object event) {
+            if (event instanceof BookChangedEvent bookEvent) {
+                BookSnapshot after = bookEvent.getAfter();
+                if (after != null) {
+                    addBook(after.getId(), after.getTitle(), after.getAuthorName());
+                } else {
+                    removeBook(bookEvent.getBookId());
+                }
+            } else if (event instanceof AuthorChangedEvent authorEvent) {
+                if (authorEvent.getType() == ChangeType.DELETED) {
+                    removeAuthor(authorEvent.getAuthorId());
+                } else {
+                    addAuthor(authorEvent.getAuthorId(), authorEvent.getName());
+                }
+            }
+        }
+
+        private void addBook(long id, String title, String authorName) {
+            removeBook(id);
+            books.put(id, new IndexedBook(title, authorName));
+            adjust(titles, title, 1, 1);
+            adjust(authors, authorName, 0, 1);
+        }
+
+        private void removeBook(long id) {
+            IndexedBook book = books.remove(id);
+            if (book != null) {
+                adjust(titles, book.title(), -1, -1);
+                adjust(authors, book.authorName(), 0, -1);
+            }
+        }
+
+        private void addAuthor(long id, String name) {
+            removeAuthor(id);
+            authorNames.put(id, name);
+            adjust(authors, name, 1, 0);
+        }
+
+        private void removeAuthor(long id) {
+            String name = authorNames.remove(id);
+            if (name != null) {
+                adjust(authors, name, -1, 0);
+            }
+        }
+
+        private void adjust(Map<String, Entry> entries, String text, long references, long books) {
+            String key = normalize(text);
+            if (key.isEmpty()) {
+                return;
+            }
+            Entry existing = entries.get(key);
+            if (existing == null) {
+                if (references <= 0) {
+                    return;
+                }
+                entries.put(key, new Entry(text.strip(), references, Math.max(0, books)));
+                characters += 2L * (key.length() + text.strip().length());
+                return;
+            }
+            long remaining = existing.references() + references;
+            if (remaining <= 0) {
+                entries.remove(key);
+                characters -= 2L * (key.length() + existing.text().length());
+            } else {
+                entries.put(key, new Entry(existing.text(), remaining, Math.max(0, existing.books() + books)));
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.library_spring_mvc.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.library_spring_mvc.dto.BookExportRow;
+import com.library_spring_mvc.repository.BookRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+public class BookExportService {
+
+    private final BookRepository bookRepository;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public BookExportService(BookRepository bookRepository, ObjectMapper objectMapper) {
+        this.bookRepository = bookRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    // Rows are DTO projections, so nothing is attached to the persistence context
+    // and heap use does not grow with the size of the catalogue.
+    @Transactional(readOnly = true)
+    public long exportNdjson(OutputStream output) throws IOException {
+        long exported = 0;
+        try (Stream<BookExportRow> rows = bookRepository.streamAllForExport();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            Iterator<BookExportRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writeRow(generator, iterator.next());
+                exported++;
+            }
+            generator.flush();
+        }
+        return exported;
+    }
+
+    private static void writeRow(JsonGenerator generator, BookExportRow row) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", row.getId());
+        generator.writeStringField("title", row.getTitle());
+        generator.writeStringField("genre", row.getGenre());
+        if (row.getAuthorId() != null) {
+            generator.writeNumberField("authorId", row.getAuthorId());
+        } else {
+            generator.writeNullField("authorId");
+        }
+        generator.writeStringField("authorName", row.getAuthorName());
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+}
@@ -0,0 +1,328 @@
+package com.library_spring_mvc.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.exc.StreamReadException;
+import com.fasterxml.jackson.databind.DatabindException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.library_spring_mvc.dto.BookDTO;
+import com.library_spring_mvc.dto.BookImportError;
+import com.library_spring_mvc.dto.BookImportReport;
+import com.library_spring_mvc.entity.Author;
+import com.library_spring_mvc.entity.Book;
+import com.library_spring_mvc.event.BookChangedEvent;
+import com.library_spring_mvc.event.BookSnapshot;
+import com.library_spring_mvc.repository.AuthorRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class BookImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final String CSV_HEADER = "title,genre,authorid";
+
+    private final AuthorRepository authorRepository;
+    private final GenreDictionary genreDictionary;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader smileReader;
+    private final ObjectReader cborReader;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+
+    @Autowired
+    public BookImportService(AuthorRepository authorRepository,
+                             GenreDictionary genreDictionary,
+                             EntityManager entityManager,
+                             PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper,
+                             ApplicationEventPublisher eventPublisher,
+                             @Value("${library.import.batch-size:500}") int batchSize) {
+        this.authorRepository = authorRepository;
+        this.genreDictionary = genreDictionary;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        // the same modules and settings as JSON, only the encoding differs
+        this.smileReader = objectMapper.copyWith(new SmileFactory()).readerFor(BookDTO.class);
+        this.cborReader = objectMapper.copyWith(new CBORFactory()).readerFor(BookDTO.class);
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+    }
+
+    public BookImportReport importNdjson(InputStream input) throws IOException {
+        return importLines(input, this::parseJsonLine, false);
+    }
+
+    public BookImportReport importCsv(InputStream input) throws IOException {
+        return importLines(input, this::parseCsvLine, true);
+    }
+
+    public BookImportReport importSmile(InputStream input) throws IOException {
+        return importValues(input, smileReader);
+    }
+
+    public BookImportReport importCbor(InputStream input) throws IOException {
+        return importValues(input, cborReader);
+    }
+
+    private BookImportReport importLines(InputStream input, Function<String, BookDTO> parser,
+                                         boolean csv) throws IOException {
+        ImportRun run = new ImportRun();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || (csv && lineNumber == 1 && isCsvHeader(line))) {
+                    continue;
+                }
+                BookDTO book;
+                try {
+                    book = parser.apply(line);
+                } catch (IllegalArgumentException ex) {
+                    run.reject(lineNumber, ex.getMessage());
+                    continue;
+                }
+                run.add(lineNumber, book);
+            }
+        }
+        return run.finish();
+    }
+
+    // A binary body has no lines, so its books are numbered from 1 in the report instead. It may be a
+    // sequence of book objects or a single array of them; once its encoding is broken the rest of it
+    // cannot be told apart, so the import stops there with what it has.
+    private BookImportReport importValues(InputStream input, ObjectReader reader) throws IOException {
+        ImportRun run = new ImportRun();
+        long row = 0;
+        try (MappingIterator<BookDTO> books = reader.readValues(input)) {
+            while (books.hasNextValue()) {
+                row++;
+                try {
+                    run.add(row, books.nextValue());
+                } catch (DatabindException ex) {
+                    // an encoding error inside a book arrives wrapped, and resynchronizing after it reads garbage
+                    if (ex.getCause() instanceof StreamReadException broken) {
+                        run.reject(row, "Malformed body: " + broken.getOriginalMessage());
+                        break;
+                    }
+                    run.reject(row, "Malformed book: " + ex.getOriginalMessage());
+                }
+            }
+        } catch (StreamReadException ex) {
+            run.reject(row + 1, "Malformed body: " + ex.getOriginalMessage());
+        }
+        return run.finish();
+    }
+
+    private void writeBatch(List<ImportRow> rows, BookImportReport report) {
+        BatchOutcome outcome;
+        try {
+            outcome = transactionTemplate.execute(status -> persistBatch(rows));
+        } catch (RuntimeException batchFailure) {
+            // the database rejected the batch: replay it row by row to isolate the offending rows
+            outcome = new BatchOutcome();
+            for (ImportRow row : rows) {
+                try {
+                    outcome.merge(transactionTemplate.execute(status -> persistBatch(List.of(row))));
+                } catch (RuntimeException rowFailure) {
+                    outcome.errors.add(new BookImportError(row.line(), rootMessage(rowFailure)));
+                }
+            }
+        }
+        report.setImportedRows(report.getImportedRows() + outcome.imported);
+        for (BookImportError error : outcome.errors) {
+            recordError(report, error.getLine(), error.getMessage());
+        }
+    }
+
+    private BatchOutcome persistBatch(List<ImportRow> rows) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+
+        Set<Long> authorIds = rows.stream()
+                .map(row -> row.book().getAuthorId())
+                .collect(Collectors.toSet());
+        Map<Long, Author> authors = authorRepository.findAllById(authorIds).stream()
+                .collect(Collectors.toMap(Author::getId, Function.identity()));
+
+        BatchOutcome outcome = new BatchOutcome();
+        List<Book> persisted = new ArrayList<>(rows.size());
+        for (ImportRow row : rows) {
+            Author author = authors.get(row.book().getAuthorId());
+            if (author == null) {
+                outcome.errors.add(new BookImportError(row.line(),
+                        "Author not found with id: " + row.book().getAuthorId()));
+                continue;
+            }
+            genreDictionary.resolve(row.book().getGenre());
+            Book book = new Book();
+            book.setTitle(row.book().getTitle());
+            book.setGenre(row.book().getGenre());
+            book.setAuthor(author);
+            entityManager.persist(book);
+            persisted.add(book);
+            outcome.imported++;
+        }
+        entityManager.flush();
+        entityManager.clear();
+        persisted.forEach(book -> eventPublisher.publishEvent(BookChangedEvent.created(BookSnapshot.of(book))));
+        return outcome;
+    }
+
+    private BookDTO parseJsonLine(String line) {
+        try {
+            return objectMapper.readValue(line, BookDTO.class);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Malformed JSON: " + ex.getOriginalMessage());
+        }
+    }
+
+    private BookDTO parseCsvLine(String line) {
+        List<String> fields = splitCsv(line);
+        if (fields.size() != 3) {
+            throw new IllegalArgumentException("Expected 3 columns (title,genre,authorId) but found " + fields.size());
+        }
+        BookDTO book = new BookDTO();
+        book.setTitle(fields.get(0));
+        book.setGenre(fields.get(1).isEmpty() ? null : fields.get(1));
+        try {
+            book.setAuthorId(fields.get(2).isBlank() ? null : Long.valueOf(fields.get(2).trim()));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid author id: " + fields.get(2));
+        }
+        return book;
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(3);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static boolean isCsvHeader(String line) {
+        return line.replace(" ", "").replace("\"", "").equalsIgnoreCase(CSV_HEADER);
+    }
+
+    private static BookDTO validate(BookDTO book) {
+        if (book == null || book.getTitle() == null || book.getTitle().isBlank()) {
+            throw new IllegalArgumentException("Title is required");
+        }
+        if (book.getAuthorId() == null) {
+            throw new IllegalArgumentException("Author id is required");
+        }
+        return book;
+    }
+
+    private static void recordError(BookImportReport report, long line, String message) {
+        report.setFailedRows(report.getFailedRows() + 1);
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+            report.getErrors().add(new BookImportError(line, message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+
+    private static String rootMessage(Throwable ex) {
+        Throwable cause = NestedExceptionUtils.getMostSpecificCause(ex);
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+
+    private record ImportRow(long line, BookDTO book) {
+    }
+
+    // Collects the rows of one import into batches and the report.
+    private final class ImportRun {
+        private final BookImportReport report = new BookImportReport();
+        private final long started = System.nanoTime();
+        private final List<ImportRow> batch = new ArrayList<>(batchSize);
+
+        private void add(long line, BookDTO book) {
+            report.setTotalRows(report.getTotalRows() + 1);
+            try {
+                batch.add(new ImportRow(line, validate(book)));
+            } catch (IllegalArgumentException ex) {
+                recordError(report, line, ex.getMessage());
+            }
+            if (batch.size() >= batchSize) {
+                writeBatch(batch, report);
+                batch.clear();
+            }
+        }
+
+        private void reject(long line, String message) {
+            report.setTotalRows(report.getTotalRows() + 1);
+            recordError(report, line, message);
+        }
+
+        private BookImportReport finish() {
+            if (!batch.isEmpty()) {
+                writeBatch(batch, report);
+                batch.clear();
+            }
+            long elapsedNanos = System.nanoTime() - started;
+            report.setElapsedMillis(elapsedNanos / 1_000_000);
+            report.setRowsPerSecond(elapsedNanos == 0 ? 0 : report.getImportedRows() * 1_000_000_000d / elapsedNanos);
+            return report;
+        }
+    }
+
+    private static final class BatchOutcome {
+        private long imported;
+        private final List<BookImportError> errors = new ArrayList<>();
+
+        private void merge(BatchOutcome other) {
+            imported += other.imported;
+            errors.addAll(other.errors);
+        }
+    }
+}
@@ -0,0 +1,474 @@
+package com.library_spring_mvc.service;
+
+import com.library_spring_mvc.dto.BookExportRow;
+import com.library_spring_mvc.event.BookChangedEvent;
+import com.library_spring_mvc.event.BookSnapshot;
+import com.library_spring_mvc.repository.BookRepository;
+import lombok.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+@Component
+public class BookSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    private static final String TITLE = "t:";
+    private static final String AUTHOR = "a:";
+    private static final String GENRE = "g:";
+    private static final String[] FIELDS = {TITLE, AUTHOR, GENRE};
+    private static final double[] FIELD_WEIGHTS = {3.0, 2.0, 1.0};
+
+    private final BookRepository bookRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Index index = new Index();
+    private List<BookChangedEvent> changesDuringRebuild;
+
+    @Autowired
+    public BookSearchIndex(BookRepository bookRepository, PlatformTransactionManager transactionManager) {
+        this.bookRepository = bookRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long started = System.nanoTime();
+        Index rebuilt = new Index();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<BookExportRow> rows = bookRepository.streamAllForExport()) {
+                rows.forEach(row -> rebuilt.add(row.getId(), row.getTitle(), row.getGenre(), row.getAuthorName()));
+            }
+        });
+
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild.forEach(rebuilt::apply);
+            changesDuringRebuild = null;
+            index = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Search index rebuilt with {} books and {} terms in {} ms",
+                rebuilt.documentTerms.size(), rebuilt.termIds.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(event);
+            }
+            index.apply(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public SearchHits search(String query, long offset, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return new SearchHits(0, List.of());
+        }
+        lock.readLock().lock();
+        try {
+            return index.search(tokens, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.documentTerms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    @Value
+    public static class SearchHits {
+        long total;
+        List<Long> ids;
+    }
+
+    private static final class Index {
+
+        private final Map<String, Integer> termIds = new HashMap<>();
+        private final DocumentTerms documentTerms = new DocumentTerms();
+        private PostingList[] postings = new PostingList[1024];
+
+        private void apply(BookChangedEvent event) {
+            if (event.getBefore() != null) {
+                remove(event.getBefore().getId());
+            }
+            if (event.getAfter() != null) {
+                BookSnapshot book = event.getAfter();
+                add(book.getId(), book.getTitle(), book.getGenre(), book.getAuthorName());
+            }
+        }
+
+        private void add(long id, String title, String genre, String authorName) {
+            remove(id);
+            Set<String> terms = new LinkedHashSet<>();
+            tokenize(title).forEach(token -> terms.add(TITLE + token));
+            tokenize(authorName).forEach(token -> terms.add(AUTHOR + token));
+            tokenize(genre).forEach(token -> terms.add(GENRE + token));
+
+            int[] ids = new int[terms.size()];
+            int i = 0;
+            for (String term : terms) {
+                int termId = termId(term);
+                postings[termId].add(id);
+                ids[i++] = termId;
+            }
+            documentTerms.put(id, ids);
+        }
+
+        private void remove(long id) {
+            int[] terms = documentTerms.remove(id);
+            if (terms != null) {
+                for (int termId : terms) {
+                    postings[termId].remove(id);
+                }
+            }
+        }
+
+        private int termId(String term) {
+            Integer existing = termIds.get(term);
+            if (existing != null) {
+                return existing;
+            }
+            int termId = termIds.size();
+            if (termId == postings.length) {
+                postings = Arrays.copyOf(postings, termId * 2);
+            }
+            postings[termId] = new PostingList();
+            termIds.put(term, termId);
+            return termId;
+        }
+
+        // Every query token has to match at least one field; fields contribute weight * idf. The books of
+        // the rarest token are the candidates, and every further token narrows them down by walking its
+        // sorted postings alongside them, so the scores stay in primitive arrays from start to end.
+        private SearchHits search(List<String> tokens, long offset, int limit) {
+            int documents = Math.max(1, documentTerms.size());
+            PostingList[][] tokenFields = new PostingList[tokens.size()][];
+            int[] tokenPostings = new int[tokens.size()];
+            for (int t = 0; t < tokens.size(); t++) {
+                tokenFields[t] = new PostingList[FIELDS.length];
+                for (int f = 0; f < FIELDS.length; f++) {
+                    Integer termId = termIds.get(FIELDS[f] + tokens.get(t));
+                    if (termId != null && postings[termId].size > 0) {
+                        tokenFields[t][f] = postings[termId];
+                        tokenPostings[t] += postings[termId].size;
+                    }
+                }
+                if (tokenPostings[t] == 0) {
+                    return new SearchHits(0, List.of());
+                }
+            }
+            int rarest = 0;
+            for (int t = 1; t < tokens.size(); t++) {
+                if (tokenPostings[t] < tokenPostings[rarest]) {
+                    rarest = t;
+                }
+            }
+
+            long[] ids = new long[tokenPostings[rarest]];
+            double[] scores = new double[ids.length];
+            int count = union(tokenFields[rarest], documents, ids, scores);
+            for (int t = 0; t < tokens.size() && count > 0; t++) {
+                if (t != rarest) {
+                    count = intersect(tokenFields[t], documents, ids, scores, count);
+                }
+            }
+            if (count == 0 || offset >= count || limit <= 0) {
+                return new SearchHits(count, List.of());
+            }
+
+            int[] ranked = top(ids, scores, count, (int) Math.min(count, offset + limit));
+            List<Long> page = new ArrayList<>(ranked.length - (int) offset);
+            for (int i = (int) offset; i < ranked.length; i++) {
+                page.add(ids[ranked[i]]);
+            }
+            return new SearchHits(count, page);
+        }
+
+        private static double weight(int field, PostingList list, int documents) {
+            return FIELD_WEIGHTS[field] * Math.log(1 + (double) documents / list.size);
+        }
+
+        // Merges the field postings of one token into ascending ids with the summed field weights.
+        private static int union(PostingList[] fields, int documents, long[] ids, double[] scores) {
+            int[] cursors = new int[fields.length];
+            int count = 0;
+            while (true) {
+                long next = 0;
+                boolean found = false;
+                for (int f = 0; f < fields.length; f++) {
+                    PostingList list = fields[f];
+                    if (list != null && cursors[f] < list.size && (!found || list.ids[cursors[f]] < next)) {
+                        next = list.ids[cursors[f]];
+                        found = true;
+                    }
+                }
+                if (!found) {
+                    return count;
+                }
+                double score = 0;
+                for (int f = 0; f < fields.length; f++) {
+                    PostingList list = fields[f];
+                    if (list != null && cursors[f] < list.size && list.ids[cursors[f]] == next) {
+                        score += weight(f, list, documents);
+                        cursors[f]++;
+                    }
+                }
+                ids[count] = next;
+                scores[count++] = score;
+            }
+        }
+
+        // Keeps the candidates one of the token's fields contains, in place, adding the token's score.
+        // Candidates and postings are both ascending, so each search starts where the previous one ended.
+        private static int intersect(PostingList[] fields, int documents, long[] ids, double[] scores, int count) {
+            double[] weights = new double[fields.length];
+            int[] cursors = new int[fields.length];
+            for (int f = 0; f < fields.length; f++) {
+                if (fields[f] != null) {
+                    weights[f] = weight(f, fields[f], documents);
+                }
+            }
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                double score = 0;
+                boolean matched = false;
+                for (int f = 0; f < fields.length; f++) {
+                    PostingList list = fields[f];
+                    if (list == null || cursors[f] == list.size) {
+                        continue;
+                    }
+                    int position = Arrays.binarySearch(list.ids, cursors[f], list.size, ids[i]);
+                    if (position >= 0) {
+                        score += weights[f];
+                        matched = true;
+                        cursors[f] = position + 1;
+                    } else {
+                        cursors[f] = -position - 1;
+                    }
+                }
+                if (matched) {
+                    ids[kept] = ids[i];
+                    scores[kept++] = scores[i] + score;
+                }
+            }
+            return kept;
+        }
+
+        // The positions of the k best candidates, best first: highest score, then lowest id. A heap of
+        // size k whose root is the worst of them keeps the work at count * log k instead of a full sort.
+        private static int[] top(long[] ids, double[] scores, int count, int k) {
+            int[] heap = new int[k];
+            int size = 0;
+            for (int i = 0; i < count; i++) {
+                if (size < k) {
+                    heap[size] = i;
+                    siftUp(heap, size++, ids, scores);
+                } else if (ranksBefore(i, heap[0], ids, scores)) {
+                    heap[0] = i;
+                    siftDown(heap, size, ids, scores);
+                }
+            }
+            int[] ranked = new int[size];
+            for (int last = size - 1; last >= 0; last--) {
+                ranked[last] = heap[0];
+                heap[0] = heap[last];
+                siftDown(heap, last, ids, scores);
+            }
+            return ranked;
+        }
+
+        private static boolean ranksBefore(int a, int b, long[] ids, double[] scores) {
+            return scores[a] > scores[b] || (scores[a] == scores[b] && ids[a] < ids[b]);
+        }
+
+        private static void siftUp(int[] heap, int position, long[] ids, double[] scores) {
+            while (position > 0) {
+                int parent = (position - 1) / 2;
+                if (!ranksBefore(heap[parent], heap[position], ids, scores)) {
+                    return;
+                }
+                swap(heap, parent, position);
+                position = parent;
+            }
+        }
+
+        private static void siftDown(int[] heap, int size, long[] ids, double[] scores) {
+            int position = 0;
+            while (true) {
+                int child = 2 * position + 1;
+                if (child >= size) {
+                    return;
+                }
+                if (child + 1 < size && ranksBefore(heap[child], heap[child + 1], ids, scores)) {
+                    child++;
+                }
+                if (!ranksBefore(heap[position], heap[child], ids, scores)) {
+                    return;
+                }
+                swap(heap, position, child);
+                position = child;
+            }
+        }
+
+        private static void swap(int[] heap, int a, int b) {
+            int swapped = heap[a];
+            heap[a] = heap[b];
+            heap[b] = swapped;
+        }
+    }
+
+    // Book id to the ids of its terms with open addressing, so indexing a book boxes no id.
+    private static final class DocumentTerms {
+
+        private long[] keys = new long[16];
+        private int[][] values = new int[16][];
+        private int size;
+
+        private int size() {
+            return size;
+        }
+
+        private void put(long id, int[] terms) {
+            int slot = slot(id);
+            while (values[slot] != null) {
+                if (keys[slot] == id) {
+                    values[slot] = terms;
+                    return;
+                }
+                slot = (slot + 1) & (keys.length - 1);
+            }
+            keys[slot] = id;
+            values[slot] = terms;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        }
+
+        private int[] remove(long id) {
+            int mask = keys.length - 1;
+            int hole = slot(id);
+            while (values[hole] != null && keys[hole] != id) {
+                hole = (hole + 1) & mask;
+            }
+            int[] removed = values[hole];
+            if (removed == null) {
+                return null;
+            }
+            // shift back the entries that probed past the hole, so no lookup stops short of its entry
+            for (int next = (hole + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+                int home = slot(keys[next]);
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    values[hole] = values[next];
+                    hole = next;
+                }
+            }
+            values[hole] = null;
+            size--;
+            return removed;
+        }
+
+        private int slot(long id) {
+            long hash = id * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & (keys.length - 1);
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[][] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2][];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+    }
+
+    private static final class PostingList {
+
+        private long[] ids = new long[4];
+        private int size;
+
+        private void add(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                return;
+            }
+            int insertAt = -position - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+
+        private void remove(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            if (size > 16 && size < ids.length / 4) {
+                ids = Arrays.copyOf(ids, ids.length / 2);
+            }
+        }
+    }
+}
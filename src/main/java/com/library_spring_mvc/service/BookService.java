@@ -1,84 +1,299 @@
 package com.library_spring_mvc.service;
 
+import com.library_spring_mvc.datasource.ReadYourWrites;
+import com.library_spring_mvc.dto.AutocompleteSuggestion;
+import com.library_spring_mvc.dto.BatchGetResponse;
 import com.library_spring_mvc.dto.BookDTO;
+import com.library_spring_mvc.dto.BookSummary;
+import com.library_spring_mvc.dto.BookVersion;
+import com.library_spring_mvc.dto.CursorPage;
 import com.library_spring_mvc.entity.Author;
 import com.library_spring_mvc.entity.Book;
+import com.library_spring_mvc.event.BookChangedEvent;
+import com.library_spring_mvc.event.BookSnapshot;
 import com.library_spring_mvc.exception.AuthorNotFoundException;
 import com.library_spring_mvc.exception.BookNotFoundException;
-import com.library_spring_mvc.repository.AuthorRepository;
+import com.library_spring_mvc.exception.InvalidCursorException;
 import com.library_spring_mvc.repository.BookRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class BookService {
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+    private static final String CURSOR_PREFIX = "id:";
+    private static final int MAX_AUTOCOMPLETE_LIMIT = 50;
+
     private final BookRepository bookRepository;
-    private final AuthorRepository authorRepository;
+    private final AuthorCache authorCache;
+    private final BookSearchIndex bookSearchIndex;
+    private final BookAutocompleteIndex bookAutocompleteIndex;
+    private final GenreDictionary genreDictionary;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SingleFlight<Long, Optional<Book>> bookById;
+    private final SingleFlight<Long, Optional<Long>> versionById;
+    private final SingleFlight<String, Optional<Book>> bookByTitle;
+    private final SingleFlight<String, Optional<BookVersion>> versionByTitle;
 
     @Autowired
-    public BookService(BookRepository bookRepository, AuthorRepository authorRepository) {
+    public BookService(BookRepository bookRepository,
+                       AuthorCache authorCache,
+                       BookSearchIndex bookSearchIndex,
+                       BookAutocompleteIndex bookAutocompleteIndex,
+                       GenreDictionary genreDictionary,
+                       ApplicationEventPublisher eventPublisher,
+                       ObjectProvider<ReadYourWrites> readYourWrites,
+                       MeterRegistry meterRegistry) {
         this.bookRepository = bookRepository;
-        this.authorRepository = authorRepository;
+        this.authorCache = authorCache;
+        this.bookSearchIndex = bookSearchIndex;
+        this.bookAutocompleteIndex = bookAutocompleteIndex;
+        this.genreDictionary = genreDictionary;
+        this.eventPublisher = eventPublisher;
+        this.bookById = new SingleFlight<>("book.by-id", readYourWrites, meterRegistry);
+        this.versionById = new SingleFlight<>("book.version-by-id", readYourWrites, meterRegistry);
+        this.bookByTitle = new SingleFlight<>("book.by-title", readYourWrites, meterRegistry);
+        this.versionByTitle = new SingleFlight<>("book.version-by-title", readYourWrites, meterRegistry);
     }
 
+    @Transactional(readOnly = true)
     public Page<Book> findAll(Pageable pageable) {
         return bookRepository.findAll(pageable);
     }
 
+    @Transactional(readOnly = true)
+    public Page<Book> findAllByGenre(String genre, Pageable pageable) {
+        // an unknown genre cannot match any row, and binding it would add it to the dictionary
+        if (genreDictionary.find(genre).isEmpty()) {
+            return Page.empty(pageable);
+        }
+        return bookRepository.findAllByGenre(genre, orderedById(pageable));
+    }
+
+    @Transactional(readOnly = true)
+    public Page<BookSummary> findAllSummaries(Pageable pageable) {
+        return bookRepository.findSummariesBy(pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<BookSummary> findAllSummariesByGenre(String genre, Pageable pageable) {
+        if (genreDictionary.find(genre).isEmpty()) {
+            return Page.empty(pageable);
+        }
+        return bookRepository.findSummariesByGenre(genre, orderedById(pageable));
+    }
+
+    @Transactional(readOnly = true)
+    public Page<BookSummary> findAllSummariesByAuthor(String nameAuthor, Pageable pageable) {
+        if (authorCache.findByName(nameAuthor).isEmpty()){
+            throw new AuthorNotFoundException("Author not found with name: " + nameAuthor);
+        }
+        return bookRepository.findSummariesByAuthor_Name(nameAuthor, pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> findAllWithFields(String fields, Pageable pageable) {
+        return bookRepository.findAllWithFields(Arrays.asList(fields.split(",")), null, null, pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> findAllByGenreWithFields(String genre, String fields, Pageable pageable) {
+        if (genreDictionary.find(genre).isEmpty()) {
+            return Page.empty(pageable);
+        }
+        return bookRepository.findAllWithFields(Arrays.asList(fields.split(",")), null, genre, pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> findAllByAuthorWithFields(String nameAuthor, String fields, Pageable pageable) {
+        if (authorCache.findByName(nameAuthor).isEmpty()){
+            throw new AuthorNotFoundException("Author not found with name: " + nameAuthor);
+        }
+        return bookRepository.findAllWithFields(Arrays.asList(fields.split(",")), nameAuthor, null, pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<Book> findAllAfter(String cursor, int size) {
+        int pageSize = clampPageSize(size);
+        List<Book> books = bookRepository.findPageAfter(decodeCursor(cursor), Limit.of(pageSize + 1));
+        return toCursorPage(books, pageSize);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<Book> findAllByGenreAfter(String genre, String cursor, int size) {
+        int pageSize = clampPageSize(size);
+        long after = decodeCursor(cursor);
+        if (genreDictionary.find(genre).isEmpty()) {
+            return new CursorPage<>(List.of(), 0, null);
+        }
+        return toCursorPage(bookRepository.findPageByGenreAfter(genre, after, Limit.of(pageSize + 1)), pageSize);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<Book> findAllByAuthorAfter(String nameAuthor, String cursor, int size) {
+        int pageSize = clampPageSize(size);
+        List<Book> books = bookRepository.findPageByAuthorNameAfter(nameAuthor, decodeCursor(cursor), Limit.of(pageSize + 1));
+        if (books.isEmpty() && authorCache.findByName(nameAuthor).isEmpty()) {
+            throw new AuthorNotFoundException("Author not found with name: " + nameAuthor);
+        }
+        return toCursorPage(books, pageSize);
+    }
+
+    @Transactional(readOnly = true)
     public Optional<Book> findById(Long id) {
-        if (!bookRepository.existsById(id)){
+        Optional<Book> book = bookById.execute(id, () -> bookRepository.findById(id));
+        if (book.isEmpty()){
             throw new BookNotFoundException("Book not found with id: " + id);
         }
-        return bookRepository.findById(id);
+        return book;
+    }
+
+    @Transactional(readOnly = true)
+    public BatchGetResponse<Book> findAllById(List<Long> ids) {
+        return BatchLookup.resolve(ids, bookRepository::findAllById, Book::getId);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Long> findVersionById(Long id) {
+        return versionById.execute(id, () -> bookRepository.findVersionById(id));
     }
 
+    @Transactional(readOnly = true)
+    public Optional<BookVersion> findVersionByTitle(String title) {
+        return versionByTitle.execute(title, () -> bookRepository.findVersionByTitle(title));
+    }
+
+    @Transactional(readOnly = true)
     public Optional<Book> findByTitle(String title) {
-        if (!bookRepository.existsByTitle(title)){
+        Optional<Book> book = bookByTitle.execute(title, () -> bookRepository.findByTitle(title));
+        if (book.isEmpty()){
             throw new BookNotFoundException("Book not found with title: " + title);
         }
-        return bookRepository.findByTitle(title);
+        return book;
     }
 
+    @Transactional(readOnly = true)
     public Page<Book> findAllByAuthor(String nameAuthor, Pageable pageable) {
-        if (!authorRepository.existsByName(nameAuthor)){
+        if (authorCache.findByName(nameAuthor).isEmpty()){
             throw new AuthorNotFoundException("Author not found with name: " + nameAuthor);
         }
         return bookRepository.findAllByAuthor_Name(nameAuthor, pageable);
     }
 
+    @Transactional(readOnly = true)
+    public Page<Book> search(String query, Pageable pageable) {
+        BookSearchIndex.SearchHits hits = bookSearchIndex.search(query, pageable.getOffset(), pageable.getPageSize());
+        Map<Long, Book> booksById = bookRepository.findAllById(hits.getIds()).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        List<Book> ranked = hits.getIds().stream()
+                .map(booksById::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new PageImpl<>(ranked, pageable, hits.getTotal());
+    }
+
+    public List<AutocompleteSuggestion> autocomplete(String prefix, int limit) {
+        return bookAutocompleteIndex.complete(prefix, Math.max(1, Math.min(limit, MAX_AUTOCOMPLETE_LIMIT)));
+    }
+
+    @Transactional
     public Book save(BookDTO bookDTO) {
         Book book = new Book();
-        Author author = authorRepository.findById(bookDTO.getAuthorId())
+        Author author = authorCache.findById(bookDTO.getAuthorId())
                 .orElseThrow(() -> new AuthorNotFoundException("Author not found with name: " + bookDTO.getAuthorId()));
 
+        genreDictionary.resolve(bookDTO.getGenre());
         book.setTitle(bookDTO.getTitle());
         book.setGenre(bookDTO.getGenre());
         book.setAuthor(author);
-        return bookRepository.save(book);
+        Book saved = bookRepository.save(book);
+        eventPublisher.publishEvent(BookChangedEvent.created(BookSnapshot.of(saved)));
+        return saved;
     }
 
+    @Transactional
     public Book update(Long id, BookDTO bookDTO) {
         Book existingBook = bookRepository.findById(id)
                 .orElseThrow(() -> new BookNotFoundException("Book not found with id: " + id));
 
-        Author author = authorRepository.findById(bookDTO.getAuthorId())
+        Author author = authorCache.findById(bookDTO.getAuthorId())
                 .orElseThrow(() -> new AuthorNotFoundException("Author not found with name: " + bookDTO.getAuthorId()));
 
+        BookSnapshot before = BookSnapshot.of(existingBook);
+        genreDictionary.resolve(bookDTO.getGenre());
         existingBook.setTitle(bookDTO.getTitle());
         existingBook.setGenre(bookDTO.getGenre());
         existingBook.setAuthor(author);
-        return bookRepository.save(existingBook);
+        Book saved = bookRepository.save(existingBook);
+        eventPublisher.publishEvent(BookChangedEvent.updated(before, BookSnapshot.of(saved)));
+        return saved;
     }
 
+    @Transactional
     public void delete(Long id) {
-        if (!bookRepository.existsById(id)){
-            throw new BookNotFoundException("Book not found with id: " + id);
+        Book book = bookRepository.findById(id)
+                .orElseThrow(() -> new BookNotFoundException("Book not found with id: " + id));
+        bookRepository.delete(book);
+        eventPublisher.publishEvent(BookChangedEvent.deleted(BookSnapshot.of(book)));
+    }
+
+    private static CursorPage<Book> toCursorPage(List<Book> books, int pageSize) {
+        if (books.size() <= pageSize) {
+            return new CursorPage<>(books, books.size(), null);
+        }
+        List<Book> content = books.subList(0, pageSize);
+        return new CursorPage<>(content, pageSize, encodeCursor(content.get(pageSize - 1).getId()));
+    }
+
+    // offset pages over the (genre_id, id) index are only stable when the order is total
+    private static Pageable orderedById(Pageable pageable) {
+        return pageable.isPaged() && pageable.getSort().isUnsorted()
+                ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by("id"))
+                : pageable;
+    }
+
+    private static int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+    }
+
+    private static String encodeCursor(long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (decoded.startsWith(CURSOR_PREFIX)) {
+                return Long.parseLong(decoded.substring(CURSOR_PREFIX.length()));
+            }
+        } catch (IllegalArgumentException ignored) {
+            // fall through to the error below; NumberFormatException is an IllegalArgumentException
         }
-        bookRepository.deleteById(id);
+        throw new InvalidCursorException("Invalid cursor: " + cursor);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,290 @@
+package com.library_spring_mvc.service;
+
+import com.library_spring_mvc.datasource.ReadYourWrites;
+import com.library_spring_mvc.dto.BookDTO;
+import com.library_spring_mvc.entity.Author;
+import com.library_spring_mvc.entity.Book;
+import com.library_spring_mvc.event.BookChangedEvent;
+import com.library_spring_mvc.event.BookSnapshot;
+import com.library_spring_mvc.exception.AuthorNotFoundException;
+import com.library_spring_mvc.exception.GroupCommitUnavailableException;
+import com.library_spring_mvc.repository.BookRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Group commit for book creation, enabled with {@code library.book-write.group-commit}. Saves from
+ * concurrent requests are queued and a single writer thread persists them in one transaction once
+ * {@code max-batch-size} books are waiting or the oldest has waited {@code max-linger}, so a burst
+ * of creations pays for one commit instead of one each. Every caller still gets its own book or
+ * exception: a missing author fails only that caller, and a batch the database rejects is replayed
+ * book by book to find the failing ones.
+ * <p>
+ * A caller waits at most {@code save-timeout} for its book, which also bounds the transaction of
+ * every batch. A save whose batch has not started writing when that time is up is withdrawn, so it is
+ * never written; one already being written may still commit after its caller gave up. Once shutdown
+ * starts, new saves are refused and those not being written yet fail.
+ */
+@Service
+public class BookWriteBatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(BookWriteBatcher.class);
+
+    private final BookRepository bookRepository;
+    private final AuthorCache authorCache;
+    private final GenreDictionary genreDictionary;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectProvider<ReadYourWrites> readYourWrites;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxLingerNanos;
+    private final long saveTimeoutNanos;
+    private final BlockingQueue<PendingSave> queue;
+    private final DistributionSummary batchSizes;
+    private final Timer queueWait;
+    private final Thread writer;
+    private volatile boolean shuttingDown;
+
+    @Autowired
+    public BookWriteBatcher(BookRepository bookRepository,
+                            AuthorCache authorCache,
+                            GenreDictionary genreDictionary,
+                            ApplicationEventPublisher eventPublisher,
+                            ObjectProvider<ReadYourWrites> readYourWrites,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${library.book-write.group-commit:false}") boolean enabled,
+                            @Value("${library.book-write.max-batch-size:200}") int maxBatchSize,
+                            @Value("${library.book-write.max-linger:5ms}") Duration maxLinger,
+                            @Value("${library.book-write.queue-capacity:10000}") int queueCapacity,
+                            @Value("${library.book-write.save-timeout:5s}") Duration saveTimeout) {
+        this.bookRepository = bookRepository;
+        this.authorCache = authorCache;
+        this.genreDictionary = genreDictionary;
+        this.eventPublisher = eventPublisher;
+        this.readYourWrites = readYourWrites;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setTimeout((int) Math.max(1, saveTimeout.toSeconds()));
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLingerNanos = maxLinger.toNanos();
+        this.saveTimeoutNanos = saveTimeout.toNanos();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSizes = DistributionSummary.builder("books.group-commit.batch.size")
+                .description("Books persisted per group commit")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.queueWait = Timer.builder("books.group-commit.queue.wait")
+                .description("Time a save waited in the queue before its batch started")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.writer = new Thread(this::writeLoop, "book-group-commit");
+        this.writer.setDaemon(true);
+        if (enabled) {
+            writer.start();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Book save(BookDTO bookDTO) {
+        if (!enabled) {
+            throw new IllegalStateException("Group commit is disabled, save books through BookService");
+        }
+        if (shuttingDown) {
+            throw shuttingDownException();
+        }
+        PendingSave save = new PendingSave(bookDTO, System.nanoTime());
+        long deadline = save.enqueuedAt + saveTimeoutNanos;
+        Book saved;
+        try {
+            // waits while the queue is full, which pushes back on callers when the writer falls behind
+            if (!queue.offer(save, saveTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new GroupCommitUnavailableException("Too many books waiting to be saved, retry later");
+            }
+            // shutdown may have drained the queue between the check above and the offer
+            if (shuttingDown && withdraw(save)) {
+                throw shuttingDownException();
+            }
+            saved = save.result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            withdraw(save);
+            throw new IllegalStateException("Interrupted while waiting for group commit", ex);
+        } catch (TimeoutException ex) {
+            if (withdraw(save)) {
+                throw new GroupCommitUnavailableException("Book was not saved in time, retry later");
+            }
+            throw new GroupCommitUnavailableException(
+                    "Book is still being saved, check whether it exists before retrying");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Group commit failed", ex.getCause());
+        }
+        // the commit happened on the writer thread, outside of this request
+        readYourWrites.ifAvailable(ReadYourWrites::recordWrite);
+        return saved;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        writer.interrupt();
+        List<PendingSave> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        abandoned.forEach(this::abandon);
+    }
+
+    // Takes the save away from the writer unless its batch already started; false when it did.
+    private boolean withdraw(PendingSave save) {
+        if (!save.claimed.compareAndSet(false, true)) {
+            return false;
+        }
+        queue.remove(save);
+        return true;
+    }
+
+    private void abandon(PendingSave save) {
+        if (save.claimed.compareAndSet(false, true)) {
+            save.result.completeExceptionally(shuttingDownException());
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingSave> batch = new ArrayList<>(maxBatchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+                long deadline = batch.get(0).enqueuedAt + maxLingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    PendingSave next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (shuttingDown) {
+                batch.forEach(this::abandon);
+            } else {
+                // saves whose callers gave up are left out
+                batch.removeIf(save -> !save.claimed.compareAndSet(false, true));
+                if (!batch.isEmpty()) {
+                    try {
+                        flush(batch);
+                    } catch (Throwable ex) {
+                        // the writer has to outlive any batch, or every later save waits for nothing
+                        log.error("Group commit of {} books failed", batch.size(), ex);
+                        batch.forEach(save -> save.result.completeExceptionally(ex));
+                    }
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private void flush(List<PendingSave> batch) {
+        long started = System.nanoTime();
+        batch.forEach(save -> queueWait.record(started - save.enqueuedAt, TimeUnit.NANOSECONDS));
+        batchSizes.record(batch.size());
+        try {
+            Map<PendingSave, Book> saved = transactionTemplate.execute(status -> persist(batch));
+            saved.forEach((save, book) -> save.result.complete(book));
+        } catch (RuntimeException batchFailure) {
+            log.debug("Group commit of {} books failed, retrying them one by one", batch.size(), batchFailure);
+            for (PendingSave save : batch) {
+                try {
+                    transactionTemplate.execute(status -> persist(List.of(save)))
+                            .forEach((pending, book) -> pending.result.complete(book));
+                } catch (RuntimeException ex) {
+                    save.result.completeExceptionally(ex);
+                }
+            }
+        }
+    }
+
+    private static GroupCommitUnavailableException shuttingDownException() {
+        return new GroupCommitUnavailableException("Application is shutting down, retry later");
+    }
+
+    private Map<PendingSave, Book> persist(List<PendingSave> batch) {
+        Set<Long> authorIds = batch.stream()
+                .map(save -> save.book.getAuthorId())
+                .collect(Collectors.toSet());
+        Map<Long, Author> authors = authorCache.findAllById(authorIds);
+        batch.stream()
+                .map(save -> save.book.getGenre())
+                .distinct()
+                .forEach(genreDictionary::resolve);
+
+        Map<PendingSave, Book> books = new LinkedHashMap<>();
+        for (PendingSave save : batch) {
+            Author author = authors.get(save.book.getAuthorId());
+            if (author == null) {
+                save.result.completeExceptionally(
+                        new AuthorNotFoundException("Author not found with name: " + save.book.getAuthorId()));
+                continue;
+            }
+            Book book = new Book();
+            book.setTitle(save.book.getTitle());
+            book.setGenre(save.book.getGenre());
+            book.setAuthor(author);
+            books.put(save, book);
+        }
+        bookRepository.saveAll(books.values());
+        bookRepository.flush();
+        books.values().forEach(book -> eventPublisher.publishEvent(BookChangedEvent.created(BookSnapshot.of(book))));
+        return books;
+    }
+
+    private static final class PendingSave {
+
+        private final BookDTO book;
+        private final long enqueuedAt;
+        private final CompletableFuture<Book> result = new CompletableFuture<>();
+        // set by the writer when the save's batch starts, or by whoever withdraws it before that
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private PendingSave(BookDTO book, long enqueuedAt) {
+            this.book = book;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.library_spring_mvc.service;
+
+import com.library_spring_mvc.event.AuthorChangedEvent;
+import com.library_spring_mvc.event.BookChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Catalogue-wide version used to validate cached listing pages. Every committed book or author
+ * change bumps it, so a listing can be answered with 304 without touching the database.
+ * The start time is part of the ETag so that a restart never re-issues an ETag from a previous run.
+ * <p>
+ * The counter only sees the changes committed by this instance. Behind a load balancer with more
+ * than one instance, a change made through another one does not move this ETag, and conditional
+ * listings would keep answering 304 for changed data; they are only valid for a single instance.
+ * There is deliberately no Last-Modified: {@code If-Modified-Since} has whole-second precision, so a
+ * client revalidating after a change in the same second would be told nothing changed.
+ */
+@Component
+public class CatalogueChangeCounter {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong changes = new AtomicLong();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        bump();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAuthorChanged(AuthorChangedEvent event) {
+        bump();
+    }
+
+    public String eTag() {
+        return epoch + "-" + changes.get();
+    }
+
+    private void bump() {
+        changes.incrementAndGet();
+    }
+}
@@ -0,0 +1,278 @@
+package com.library_spring_mvc.service;
+
+import com.library_spring_mvc.dto.AuthorBookCount;
+import com.library_spring_mvc.dto.CatalogueStatistics;
+import com.library_spring_mvc.dto.GenreBookCount;
+import com.library_spring_mvc.event.AuthorChangedEvent;
+import com.library_spring_mvc.event.BookChangedEvent;
+import com.library_spring_mvc.event.BookSnapshot;
+import com.library_spring_mvc.event.ChangeType;
+import com.library_spring_mvc.exception.AuthorNotFoundException;
+import com.library_spring_mvc.repository.AuthorRepository;
+import com.library_spring_mvc.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Books-per-author and books-per-genre counters maintained from book and author change events, with
+ * rankings kept in sorted sets so that reads never scan the catalogue. A scheduled reconciliation
+ * replaces the counters with a {@code GROUP BY} of the database to correct any drift.
+ * <p>
+ * Change events update the current counters in place, one entry at a time. A reconciliation builds
+ * a complete new set of counters on the side and publishes it with a single volatile write, so a
+ * reader sees either the old or the new counters and never an emptied or half-filled map.
+ */
+@Service
+public class CatalogueStatisticsService {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogueStatisticsService.class);
+
+    private static final int MAX_TOP = 100;
+    private static final int RECONCILE_ATTEMPTS = 3;
+    private static final long RECONCILE_RETRY_MILLIS = 200;
+
+    private static final Comparator<AuthorCount> AUTHOR_RANKING = Comparator
+            .comparingLong(AuthorCount::books).reversed()
+            .thenComparingLong(AuthorCount::authorId);
+    private static final Comparator<GenreCount> GENRE_RANKING = Comparator
+            .comparingLong(GenreCount::books).reversed()
+            .thenComparing(GenreCount::genre);
+
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TaskScheduler taskScheduler;
+
+    private volatile Counters counters = new Counters();
+
+    // A reconciliation is only applied when no change was applied and no write was between
+    // publishing its event and completing its transaction while the GROUP BY ran.
+    private final AtomicLong appliedChanges = new AtomicLong();
+    private final AtomicInteger writesInFlight = new AtomicInteger();
+    private volatile Instant reconciledAt;
+    private volatile long lastReconciliationDrift;
+
+    @Autowired
+    public CatalogueStatisticsService(BookRepository bookRepository,
+                                      AuthorRepository authorRepository,
+                                      PlatformTransactionManager transactionManager,
+                                      TaskScheduler taskScheduler) {
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.taskScheduler = taskScheduler;
+    }
+
+    public CatalogueStatistics statistics(int top) {
+        int limit = Math.max(1, Math.min(top, MAX_TOP));
+        Counters current = counters;
+        Map<String, Long> booksPerGenre = new TreeMap<>();
+        current.genres.values().forEach(genre -> booksPerGenre.put(genre.genre(), genre.books()));
+        List<AuthorBookCount> topAuthors = current.authorRanking.stream()
+                .limit(limit)
+                .map(author -> new AuthorBookCount(author.authorId(), author.name(), author.books()))
+                .toList();
+        List<GenreBookCount> topGenres = current.genreRanking.stream()
+                .limit(limit)
+                .map(genre -> new GenreBookCount(genre.genre(), genre.books()))
+                .toList();
+        return new CatalogueStatistics(current.totalBooks.get(), current.authors.size(), booksPerGenre, topAuthors, topGenres,
+                reconciledAt, lastReconciliationDrift);
+    }
+
+    public AuthorBookCount booksByAuthor(Long authorId) {
+        AuthorCount author = counters.authors.get(authorId);
+        if (author == null) {
+            throw new AuthorNotFoundException("Author not found with id: " + authorId);
+        }
+        return new AuthorBookCount(author.authorId(), author.name(), author.books());
+    }
+
+    @EventListener
+    public void onBookChangePublished(BookChangedEvent event) {
+        writesInFlight.incrementAndGet();
+    }
+
+    @EventListener
+    public void onAuthorChangePublished(AuthorChangedEvent event) {
+        writesInFlight.incrementAndGet();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onBookChangeCompleted(BookChangedEvent event) {
+        writesInFlight.decrementAndGet();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onAuthorChangeCompleted(AuthorChangedEvent event) {
+        writesInFlight.decrementAndGet();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onBookChanged(BookChangedEvent event) {
+        BookSnapshot before = event.getBefore();
+        BookSnapshot after = event.getAfter();
+        if (before != null) {
+            adjustAuthor(before.getAuthorId(), before.getAuthorName(), -1);
+            adjustGenre(before.getGenre(), -1);
+            counters.totalBooks.decrementAndGet();
+        }
+        if (after != null) {
+            adjustAuthor(after.getAuthorId(), after.getAuthorName(), 1);
+            adjustGenre(after.getGenre(), 1);
+            counters.totalBooks.incrementAndGet();
+        }
+        appliedChanges.incrementAndGet();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onAuthorChanged(AuthorChangedEvent event) {
+        if (event.getType() == ChangeType.DELETED) {
+            AuthorCount removed = counters.authors.remove(event.getAuthorId());
+            if (removed != null) {
+                counters.authorRanking.remove(removed);
+            }
+        } else {
+            adjustAuthor(event.getAuthorId(), event.getName(), 0);
+        }
+        appliedChanges.incrementAndGet();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${library.statistics.reconcile-interval:PT10M}",
+            fixedDelayString = "${library.statistics.reconcile-interval:PT10M}")
+    public void reconcile() {
+        reconcile(1);
+    }
+
+    private void reconcile(int attempt) {
+        long seen = appliedChanges.get();
+        if (writesInFlight.get() == 0) {
+            List<AuthorBookCount> authorCounts = readOnlyTransaction.execute(
+                    status -> authorRepository.countBooksPerAuthor());
+            List<GenreBookCount> genreCounts = readOnlyTransaction.execute(
+                    status -> bookRepository.countBooksPerGenre());
+            synchronized (this) {
+                if (appliedChanges.get() == seen && writesInFlight.get() == 0) {
+                    replace(authorCounts, genreCounts);
+                    return;
+                }
+            }
+        }
+        if (attempt == RECONCILE_ATTEMPTS) {
+            log.info("Catalogue statistics reconciliation skipped, writes kept arriving during {} attempts",
+                    RECONCILE_ATTEMPTS);
+            return;
+        }
+        // Retried as a task of its own instead of sleeping on the scheduler's only thread, which also
+        // runs the change feed heartbeat and the replica health checks.
+        taskScheduler.schedule(() -> reconcile(attempt + 1),
+                Instant.now().plusMillis(RECONCILE_RETRY_MILLIS * attempt));
+    }
+
+    private void replace(List<AuthorBookCount> authorCounts, List<GenreBookCount> genreCounts) {
+        Counters previous = counters;
+        Counters fresh = new Counters();
+        long drift = 0;
+        long books = 0;
+        for (AuthorBookCount row : authorCounts) {
+            AuthorCount author = new AuthorCount(row.getAuthorId(), row.getName(), row.getBooks());
+            fresh.authors.put(author.authorId(), author);
+            fresh.authorRanking.add(author);
+            AuthorCount current = previous.authors.get(author.authorId());
+            drift += Math.abs(author.books() - (current == null ? 0 : current.books()));
+            books += author.books();
+        }
+        for (AuthorCount current : previous.authors.values()) {
+            if (!fresh.authors.containsKey(current.authorId())) {
+                drift += current.books();
+            }
+        }
+        for (GenreBookCount row : genreCounts) {
+            GenreCount genre = new GenreCount(row.getGenre(), row.getBooks());
+            fresh.genres.put(genre.genre(), genre);
+            fresh.genreRanking.add(genre);
+        }
+        fresh.totalBooks.set(books);
+        counters = fresh;
+        // the first reconciliation is the initial load rather than a correction
+        if (reconciledAt != null && drift > 0) {
+            log.warn("Catalogue statistics reconciled with a drift of {} books", drift);
+        }
+        lastReconciliationDrift = reconciledAt == null ? 0 : drift;
+        reconciledAt = Instant.now();
+    }
+
+    private void adjustAuthor(Long authorId, String name, long delta) {
+        if (authorId == null) {
+            return;
+        }
+        Counters counters = this.counters;
+        AuthorCount current = counters.authors.get(authorId);
+        AuthorCount updated = current == null
+                ? new AuthorCount(authorId, name, Math.max(0, delta))
+                : new AuthorCount(authorId, Objects.requireNonNullElse(name, current.name()),
+                        Math.max(0, current.books() + delta));
+        if (current != null) {
+            counters.authorRanking.remove(current);
+        }
+        counters.authors.put(authorId, updated);
+        counters.authorRanking.add(updated);
+    }
+
+    private void adjustGenre(String name, long delta) {
+        if (name == null) {
+            return;
+        }
+        Counters counters = this.counters;
+        GenreCount current = counters.genres.get(name);
+        long books = Math.max(0, (current == null ? 0 : current.books()) + delta);
+        if (current != null) {
+            counters.genreRanking.remove(current);
+        }
+        if (books == 0) {
+            counters.genres.remove(name);
+            return;
+        }
+        GenreCount updated = new GenreCount(name, books);
+        counters.genres.put(name, updated);
+        counters.genreRanking.add(updated);
+    }
+
+    private static final class Counters {
+        private final Map<Long, AuthorCount> authors = new ConcurrentHashMap<>();
+        private final NavigableSet<AuthorCount> authorRanking = new ConcurrentSkipListSet<>(AUTHOR_RANKING);
+        private final Map<String, GenreCount> genres = new ConcurrentHashMap<>();
+        private final NavigableSet<GenreCount> genreRanking = new ConcurrentSkipListSet<>(GENRE_RANKING);
+        private final AtomicLong totalBooks = new AtomicLong();
+    }
+
+    private record AuthorCount(long authorId, String name, long books) {
+    }
+
+    private record GenreCount(String genre, long books) {
+    }
+}
@@ -0,0 +1,260 @@
+package com.library_spring_mvc.service;
+
+import com.library_spring_mvc.dto.ChangeFeedEvent;
+import com.library_spring_mvc.event.AuthorChangedEvent;
+import com.library_spring_mvc.event.BookChangedEvent;
+import com.library_spring_mvc.event.BookSnapshot;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+
+/**
+ * Streams committed book and author changes to Server-Sent Events subscribers. Every change gets the
+ * next sequence number and is kept in a ring buffer of the last {@code library.change-feed.buffer-size}
+ * changes, so a subscriber that reconnects with the {@code Last-Event-ID} it saw last receives what it
+ * missed. When that point has already left the buffer, or comes from before a restart, the subscriber
+ * gets a {@code reset} event instead and has to reload the catalogue.
+ * <p>
+ * Each subscriber has its own queue of at most {@code library.change-feed.subscriber-buffer-size}
+ * changes, filled by the committing thread and drained by a sender thread. A subscriber that falls
+ * that far behind is disconnected rather than buffered without limit; it resumes from the ring buffer
+ * when it reconnects.
+ */
+@Service
+public class ChangeFeed {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeFeed.class);
+
+    // Part of every event id, so that an id from before a restart is never mistaken for a current one.
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final ChangeFeedEvent[] buffer;
+    private final int subscriberBufferSize;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger senderThreads = new AtomicInteger();
+    // a sender thread is only busy while its subscriber has something to send
+    private final ExecutorService senders = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "change-feed-" + senderThreads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Counter publishedEvents;
+    private final Counter overflowDisconnects;
+    private long sequence;
+
+    @Autowired
+    public ChangeFeed(MeterRegistry meterRegistry,
+                      @Value("${library.change-feed.buffer-size:10000}") int bufferSize,
+                      @Value("${library.change-feed.subscriber-buffer-size:1000}") int subscriberBufferSize) {
+        this.buffer = new ChangeFeedEvent[bufferSize];
+        this.subscriberBufferSize = subscriberBufferSize;
+        this.publishedEvents = Counter.builder("changefeed.events")
+                .description("Changes published on the change feed")
+                .register(meterRegistry);
+        this.overflowDisconnects = Counter.builder("changefeed.disconnects")
+                .description("Subscribers disconnected for falling too far behind")
+                .tag("reason", "overflow")
+                .register(meterRegistry);
+        Gauge.builder("changefeed.subscribers", subscribers, Set::size)
+                .description("Connected change feed subscribers")
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        BookSnapshot book = event.getAfter() != null ? event.getAfter() : event.getBefore();
+        publish(sequence -> new ChangeFeedEvent(sequence, ChangeFeedEvent.BOOK, event.getType(),
+                event.getBookId(), book, null));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAuthorChanged(AuthorChangedEvent event) {
+        publish(sequence -> new ChangeFeedEvent(sequence, ChangeFeedEvent.AUTHOR, event.getType(),
+                event.getAuthorId(), null, event.getName()));
+    }
+
+    /**
+     * Starts sending changes to the emitter: the changes after {@code lastEventId} first when one is
+     * given, then every new one. The emitter's completion, timeout and error callbacks are taken.
+     */
+    public void subscribe(SseEmitter emitter, String lastEventId) {
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        // registering under the publishing lock leaves no gap between the backlog and the live changes
+        synchronized (this) {
+            if (lastEventId != null) {
+                long resumeFrom = parseSequence(lastEventId);
+                if (resumeFrom < 0 || resumeFrom < sequence - buffer.length || resumeFrom > sequence) {
+                    subscriber.resetTo = sequence;
+                } else {
+                    for (long next = resumeFrom + 1; next <= sequence; next++) {
+                        subscriber.backlog.add(buffer[slot(next)]);
+                    }
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        subscriber.schedule();
+    }
+
+    // also tells proxies and clients that an idle connection is still alive, and finds dead ones
+    @Scheduled(initialDelayString = "${library.change-feed.heartbeat-interval:PT15S}",
+            fixedDelayString = "${library.change-feed.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        subscribers.forEach(Subscriber::heartbeat);
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+        senders.shutdownNow();
+    }
+
+    private synchronized void publish(LongFunction<ChangeFeedEvent> change) {
+        ChangeFeedEvent event = change.apply(++sequence);
+        buffer[slot(sequence)] = event;
+        subscribers.forEach(subscriber -> subscriber.offer(event));
+        publishedEvents.increment();
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % buffer.length);
+    }
+
+    // an id this run did not issue, or cannot read, resumes from nowhere
+    private long parseSequence(String eventId) {
+        int separator = eventId.lastIndexOf('-');
+        if (separator < 0 || !eventId.substring(0, separator).equals(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(separator + 1));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<ChangeFeedEvent> queue = new ArrayBlockingQueue<>(subscriberBufferSize);
+        private final List<ChangeFeedEvent> backlog = new ArrayList<>();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean heartbeatDue = new AtomicBoolean();
+        private long resetTo = -1;
+        private volatile boolean overflowed;
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        // called by the committing thread, so it must never block on the client
+        private void offer(ChangeFeedEvent event) {
+            if (!queue.offer(event)) {
+                overflowed = true;
+                subscribers.remove(this);
+                queue.clear();
+                overflowDisconnects.increment();
+            }
+            schedule();
+        }
+
+        private void heartbeat() {
+            heartbeatDue.set(true);
+            schedule();
+        }
+
+        private void close() {
+            closed = true;
+            subscribers.remove(this);
+        }
+
+        private void schedule() {
+            if (!closed && sending.compareAndSet(false, true)) {
+                senders.execute(this::send);
+            }
+        }
+
+        // Runs on one sender thread at a time, which is the only one that writes to the emitter.
+        private void send() {
+            try {
+                if (resetTo >= 0) {
+                    emitter.send(SseEmitter.event()
+                            .name("reset")
+                            .id(eventId(resetTo))
+                            .data("The changes since the given event are no longer available, reload the catalogue"));
+                    resetTo = -1;
+                }
+                for (ChangeFeedEvent event : backlog) {
+                    send(event);
+                }
+                backlog.clear();
+                while (true) {
+                    if (overflowed) {
+                        emitter.complete();
+                        close();
+                        return;
+                    }
+                    ChangeFeedEvent event = queue.poll();
+                    if (event != null) {
+                        send(event);
+                    } else if (heartbeatDue.getAndSet(false)) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    } else {
+                        sending.set(false);
+                        // something may have arrived after the last poll but before sending was cleared
+                        if (closed || (queue.isEmpty() && !heartbeatDue.get() && !overflowed)
+                                || !sending.compareAndSet(false, true)) {
+                            return;
+                        }
+                    }
+                }
+            } catch (IOException | IllegalStateException ex) {
+                // the client went away or the emitter already completed
+                log.debug("Dropping change feed subscriber", ex);
+                close();
+            }
+        }
+
+        private void send(ChangeFeedEvent event) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .id(eventId(event.getSequence()))
+                    .name("change")
+                    .data(event, MediaType.APPLICATION_JSON));
+        }
+    }
+}
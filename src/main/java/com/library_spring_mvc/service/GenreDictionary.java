@@ -0,0 +1,187 @@
+package com.library_spring_mvc.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory id &lt;-&gt; name map of the {@code genres} table. The table only ever grows, so entries are
+ * never invalidated; a lookup that misses goes to the database for rows added by other instances or
+ * loaded behind the application's back.
+ * <p>
+ * Writers {@link #resolve(String) resolve} the genres of their books before persisting them, in their
+ * own transaction; {@link GenreConverter} then only looks ids up. A genre inserted by a transaction
+ * is only cached once that transaction commits, so a rollback never leaves an id behind that no row has.
+ */
+@Component
+public class GenreDictionary {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<String, Integer> idsByName = new ConcurrentHashMap<>();
+    private final Map<Integer, String> namesById = new ConcurrentHashMap<>();
+
+    @Autowired
+    public GenreDictionary(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        jdbcTemplate.query("select genre_id, genre_name from genres",
+                (RowCallbackHandler) rs -> remember(rs.getInt("genre_id"), rs.getString("genre_name")));
+    }
+
+    public Optional<Integer> find(String name) {
+        Integer id = idsByName.get(name);
+        if (id != null) {
+            return Optional.of(id);
+        }
+        List<Integer> ids = jdbcTemplate.queryForList("select genre_id from genres where genre_name = ?",
+                Integer.class, name);
+        ids.forEach(found -> remember(found, name));
+        return ids.stream().findFirst();
+    }
+
+    public String nameOf(int id) {
+        String name = namesById.get(id);
+        Map<String, Integer> inserted = insertedInThisTransaction();
+        if (name == null && inserted != null) {
+            name = inserted.entrySet().stream()
+                    .filter(entry -> entry.getValue() == id)
+                    .map(Map.Entry::getKey)
+                    .findFirst()
+                    .orElse(null);
+        }
+        if (name == null) {
+            reload();
+            name = namesById.get(id);
+        }
+        if (name == null) {
+            throw new IllegalStateException("Unknown genre id: " + id);
+        }
+        return name;
+    }
+
+    /**
+     * Returns the id of a genre that is about to be written, or null for no genre, without touching the
+     * database for a known one. Called by the converter while Hibernate flushes, so every genre of the
+     * books being written must have been {@link #resolve(String) resolved} in this transaction before.
+     */
+    public Integer idOf(String name) {
+        if (name == null) {
+            return null;
+        }
+        Map<String, Integer> inserted = insertedInThisTransaction();
+        Integer id = inserted != null ? inserted.get(name) : null;
+        if (id != null) {
+            return id;
+        }
+        return find(name).orElseThrow(() ->
+                new IllegalStateException("Genre was not resolved before writing the book: " + name));
+    }
+
+    /**
+     * Returns the id of the genre, inserting it first if it does not exist, or null for no genre. The
+     * insert joins the caller's transaction and connection, inside a savepoint so that losing a race
+     * with a concurrent insert of the same genre does not abort the caller's transaction.
+     */
+    public Integer resolve(String name) {
+        if (name == null) {
+            return null;
+        }
+        // checked before the table, which would show this transaction's own uncommitted insert
+        Map<String, Integer> inserted = insertedInThisTransaction();
+        if (inserted != null && inserted.containsKey(name)) {
+            return inserted.get(name);
+        }
+        return find(name).orElseGet(() -> {
+            try {
+                int id = insert(name);
+                rememberAfterCommit(id, name);
+                return id;
+            } catch (DuplicateKeyException ex) {
+                // another writer added the same genre concurrently
+                return find(name).orElseThrow(() -> ex);
+            }
+        });
+    }
+
+    // Runs on the connection of the caller's transaction, if there is one. A failed statement aborts a
+    // PostgreSQL transaction, so the insert is wrapped in a savepoint that a duplicate rolls back to.
+    private int insert(String name) {
+        return jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            Savepoint savepoint = connection.getAutoCommit() ? null : connection.setSavepoint();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "insert into genres (genre_name) values (?)", new String[]{"genre_id"})) {
+                statement.setString(1, name);
+                statement.executeUpdate();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    keys.next();
+                    int id = keys.getInt(1);
+                    if (savepoint != null) {
+                        connection.releaseSavepoint(savepoint);
+                    }
+                    return id;
+                }
+            } catch (SQLException ex) {
+                if (savepoint != null) {
+                    connection.rollback(savepoint);
+                }
+                throw ex;
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Integer> insertedInThisTransaction() {
+        return (Map<String, Integer>) TransactionSynchronizationManager.getResource(this);
+    }
+
+    private void rememberAfterCommit(int id, String name) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            remember(id, name);
+            return;
+        }
+        Map<String, Integer> inserted = insertedInThisTransaction();
+        if (inserted == null) {
+            Map<String, Integer> pending = new HashMap<>();
+            inserted = pending;
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pending.forEach((genre, genreId) -> remember(genreId, genre));
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResource(GenreDictionary.this);
+                }
+            });
+        }
+        inserted.put(name, id);
+    }
+
+    private void remember(int id, String name) {
+        idsByName.put(name, id);
+        namesById.put(id, name);
+    }
+}
@@ -0,0 +1,118 @@
+package com.library_spring_mvc.service;
+
+import com.library_spring_mvc.datasource.ReadYourWrites;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into one: the first caller runs the lookup, callers
+ * arriving while it is in flight wait for and share its result or exception. Nothing is cached
+ * once the call completes. Keys are claimed with a lock-free {@code putIfAbsent}, so calls for
+ * different keys never wait on each other.
+ * <p>
+ * Shared results are handed to several requests at once and must be treated as read-only.
+ * <p>
+ * Some callers must see the database as it is now rather than as it was when the leader's call began,
+ * so they always run their own lookup: those inside a read-write transaction, which read the primary
+ * and may depend on their own uncommitted changes, and those {@link ReadYourWrites} pinned to the
+ * primary, whose write may not have reached the replica a leader reads from.
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<Flight<K>, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final ObjectProvider<ReadYourWrites> readYourWrites;
+    private final Counter executed;
+    private final Counter coalesced;
+    private final Counter bypassed;
+
+    public SingleFlight(String lookup, ObjectProvider<ReadYourWrites> readYourWrites, MeterRegistry meterRegistry) {
+        this.readYourWrites = readYourWrites;
+        this.executed = Counter.builder("singleflight.calls")
+                .description("Lookups that ran against the database")
+                .tag("lookup", lookup)
+                .tag("result", "executed")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("singleflight.calls")
+                .description("Lookups answered by a concurrent identical lookup")
+                .tag("lookup", lookup)
+                .tag("result", "coalesced")
+                .register(meterRegistry);
+        this.bypassed = Counter.builder("singleflight.calls")
+                .description("Lookups that had to run on their own")
+                .tag("lookup", lookup)
+                .tag("result", "bypassed")
+                .register(meterRegistry);
+        Gauge.builder("singleflight.coalescing.ratio", this, SingleFlight::coalescingRatio)
+                .description("Share of lookups that joined one already in flight")
+                .tag("lookup", lookup)
+                .register(meterRegistry);
+    }
+
+    public V execute(K key, Supplier<V> lookup) {
+        ReadYourWrites routing = readYourWrites.getIfAvailable();
+        if (mustReadCurrentState(routing)) {
+            bypassed.increment();
+            return lookup.get();
+        }
+        // a caller only joins a call that reads from the same database it would have read from
+        Flight<K> flight = new Flight<>(key, routing != null);
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(flight, call);
+        if (leader != null) {
+            coalesced.increment();
+            return await(leader);
+        }
+
+        executed.increment();
+        try {
+            V value = lookup.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error ex) {
+            call.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(flight, call);
+        }
+    }
+
+    public double coalescingRatio() {
+        double total = executed.count() + coalesced.count() + bypassed.count();
+        return total == 0 ? 0 : coalesced.count() / total;
+    }
+
+    private static boolean mustReadCurrentState(ReadYourWrites routing) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return true;
+        }
+        return routing != null && routing.isPinnedToPrimary();
+    }
+
+    private static <V> V await(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException ex) {
+            // rethrow the leader's exception itself so that followers map to the same HTTP status
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    // fromReplica: read-only lookups go to the replica pool rather than straight to the primary
+    private record Flight<K>(K key, boolean fromReplica) {
+    }
+}
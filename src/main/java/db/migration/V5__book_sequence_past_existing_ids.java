@@ -0,0 +1,27 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Book ids used to come from an identity column, so on a database that predates books_seq the
+ * sequence starts below ids that are already taken. Restarts it after the highest one; neither
+ * PostgreSQL nor H2 accepts a subquery in RESTART WITH, hence a Java migration.
+ */
+public class V5__book_sequence_past_existing_ids extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            long next;
+            try (ResultSet maxId = statement.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM books")) {
+                maxId.next();
+                next = maxId.getLong(1);
+            }
+            statement.execute("ALTER SEQUENCE books_seq RESTART WITH " + next);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+-- The schema for an empty database. Databases that already have these tables, as Hibernate's
+-- ddl-auto=update created them, are baselined at this version and start with V2; V4 adds what
+-- their tables lack.
+CREATE TABLE author (
+    author_id   BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    author_name VARCHAR(255),
+    version     BIGINT DEFAULT 0 NOT NULL
+);
+
+CREATE SEQUENCE books_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE books (
+    id        BIGINT PRIMARY KEY,
+    title     VARCHAR(255),
+    genre     VARCHAR(255),
+    author_id BIGINT REFERENCES author (author_id),
+    version   BIGINT DEFAULT 0 NOT NULL
+);
@@ -0,0 +1,19 @@
+-- Moves genre names into a dictionary table referenced by id. The IF [NOT] EXISTS guards cover
+-- databases where ddl-auto=update already added the genres table and the genre_id column.
+CREATE TABLE IF NOT EXISTS genres (
+    genre_id   INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    genre_name VARCHAR(255) NOT NULL UNIQUE
+);
+
+ALTER TABLE books ADD COLUMN IF NOT EXISTS genre_id INTEGER;
+
+INSERT INTO genres (genre_name)
+SELECT DISTINCT b.genre FROM books b
+WHERE b.genre IS NOT NULL AND NOT EXISTS (SELECT 1 FROM genres g WHERE g.genre_name = b.genre);
+
+UPDATE books SET genre_id = (SELECT g.genre_id FROM genres g WHERE g.genre_name = books.genre)
+WHERE genre IS NOT NULL AND genre_id IS NULL;
+
+ALTER TABLE books DROP COLUMN IF EXISTS genre;
+
+ALTER TABLE books ADD CONSTRAINT books_genre_id_fk FOREIGN KEY (genre_id) REFERENCES genres (genre_id);
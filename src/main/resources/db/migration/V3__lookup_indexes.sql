@@ -0,0 +1,11 @@
+-- AuthorRepository.findByName/existsByName and every author-name book listing
+CREATE INDEX IF NOT EXISTS author_author_name_idx ON author (author_name);
+
+-- BookRepository.findByTitle/existsByTitle
+CREATE INDEX IF NOT EXISTS books_title_idx ON books (title);
+
+-- The author join, the cascade on author delete, and author pages ordered by id
+CREATE INDEX IF NOT EXISTS books_author_id_id_idx ON books (author_id, id);
+
+-- Genre pages ordered by id, offset and cursor alike
+CREATE INDEX IF NOT EXISTS books_genre_id_id_idx ON books (genre_id, id);
@@ -0,0 +1,8 @@
+-- Databases that were baselined at V1 kept the tables ddl-auto=update had created, from before
+-- optimistic locking and sequence-generated book ids, so V1 never added these. On databases that
+-- V1 created they are no-ops.
+ALTER TABLE author ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+
+ALTER TABLE books ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+
+CREATE SEQUENCE IF NOT EXISTS books_seq START WITH 1 INCREMENT BY 50;
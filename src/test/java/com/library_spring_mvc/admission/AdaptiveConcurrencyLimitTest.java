@@ -0,0 +1,82 @@
+package com.library_spring_mvc.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(20);
+
+    @Test
+    void shouldRejectOrQueueBeyondLimitTest() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 1);
+        assertTrue(limit.tryAcquire(0, TimeUnit.SECONDS));
+        assertTrue(limit.tryAcquire(0, TimeUnit.SECONDS));
+
+        assertFalse(limit.tryAcquire(0, TimeUnit.SECONDS));
+        assertFalse(limit.tryAcquire(10, TimeUnit.MILLISECONDS));
+
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> acquire(limit, 5));
+        while (limit.getWaiting() == 0) {
+            Thread.sleep(1);
+        }
+        // the queue holds one request, so the next one is rejected without waiting
+        assertFalse(limit.tryAcquire(5, TimeUnit.SECONDS));
+        limit.release(-1);
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+        assertEquals(2, limit.getInFlight());
+    }
+
+    @Test
+    void shouldGrowWhileLatencyHoldsAndShrinkWhenItRisesTest() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 2, 100, 0);
+
+        saturateAndRelease(limit, FAST, 50);
+        int grown = limit.getLimit();
+        assertTrue(grown > 10, () -> "limit " + grown);
+
+        saturateAndRelease(limit, SLOW, 50);
+        int shrunk = limit.getLimit();
+        assertTrue(shrunk < grown / 2, () -> "limit " + shrunk + " after " + grown);
+        assertTrue(shrunk >= 2);
+    }
+
+    @Test
+    void shouldNotGrowWhileMostlyIdleTest() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 2, 100, 0);
+
+        for (int request = 0; request < 100; request++) {
+            assertTrue(acquire(limit, 0));
+            limit.release(FAST);
+        }
+
+        assertEquals(10, limit.getLimit());
+    }
+
+    // fills the limit and releases every request with the given latency, in rounds
+    private static void saturateAndRelease(AdaptiveConcurrencyLimit limit, long latencyNanos, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            int admitted = 0;
+            while (acquire(limit, 0)) {
+                admitted++;
+            }
+            for (int request = 0; request < admitted; request++) {
+                limit.release(latencyNanos);
+            }
+        }
+    }
+
+    private static boolean acquire(AdaptiveConcurrencyLimit limit, long timeoutSeconds) {
+        try {
+            return limit.tryAcquire(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.library_spring_mvc.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketRateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+    @Test
+    void shouldAllowBurstThenSustainedRatePerClientTest() {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(10, 3, 100, clock::get);
+
+        assertEquals(0, rateLimiter.tryAcquire("hammering"));
+        assertEquals(0, rateLimiter.tryAcquire("hammering"));
+        assertEquals(0, rateLimiter.tryAcquire("hammering"));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), rateLimiter.tryAcquire("hammering"));
+        assertEquals(0, rateLimiter.tryAcquire("polite"));
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(0, rateLimiter.tryAcquire("hammering"));
+        assertTrue(rateLimiter.tryAcquire("hammering") > 0);
+    }
+
+    @Test
+    void shouldHandOutEachTokenOnceUnderContentionTest() throws Exception {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(1, 100, 100, clock::get);
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int caller = 0; caller < 8; caller++) {
+                tasks.add(() -> {
+                    int admitted = 0;
+                    for (int attempt = 0; attempt < 1_000; attempt++) {
+                        if (rateLimiter.tryAcquire("client") == 0) {
+                            admitted++;
+                        }
+                    }
+                    return admitted;
+                });
+            }
+            int admitted = 0;
+            for (Future<Integer> result : callers.invokeAll(tasks)) {
+                admitted += result.get();
+            }
+            assertEquals(100, admitted);
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+}
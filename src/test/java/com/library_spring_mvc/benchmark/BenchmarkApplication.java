@@ -0,0 +1,83 @@
+package com.library_spring_mvc.benchmark;
+
+import com.library_spring_mvc.LibrarySpringMvcApplication;
+import com.library_spring_mvc.service.BookAutocompleteIndex;
+import com.library_spring_mvc.service.BookSearchIndex;
+import com.library_spring_mvc.service.GenreDictionary;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Starts the application against a private in-memory H2 database and fills it with a catalogue of
+ * the requested size: one author per {@link #BOOKS_PER_AUTHOR} books, book ids 1..rows. The
+ * in-memory search structures are rebuilt afterwards since the rows bypass the service layer.
+ */
+final class BenchmarkApplication {
+
+    static final int BOOKS_PER_AUTHOR = 100;
+
+    private static final int INSERT_BATCH_SIZE = 5_000;
+    private static final int GENRES = 50;
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(int rows) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(LibrarySpringMvcApplication.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN");
+        seed(context.getBean(JdbcTemplate.class), rows);
+        context.getBean(GenreDictionary.class).reload();
+        context.getBean(BookSearchIndex.class).rebuild();
+        context.getBean(BookAutocompleteIndex.class).rebuild();
+        return context;
+    }
+
+    static int authors(int rows) {
+        return Math.max(1, rows / BOOKS_PER_AUTHOR);
+    }
+
+    static String authorName(int author) {
+        return "Author " + author;
+    }
+
+    private static void seed(JdbcTemplate jdbcTemplate, int rows) {
+        int authors = authors(rows);
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int author = 1; author <= authors; author++) {
+            batch.add(new Object[]{author, authorName(author)});
+            if (batch.size() == INSERT_BATCH_SIZE) {
+                jdbcTemplate.batchUpdate("insert into author (author_id, author_name) values (?, ?)", batch);
+                batch.clear();
+            }
+        }
+        jdbcTemplate.batchUpdate("insert into author (author_id, author_name) values (?, ?)", batch);
+        batch.clear();
+        jdbcTemplate.execute("alter table author alter column author_id restart with " + (authors + 1));
+
+        for (int genre = 0; genre < GENRES; genre++) {
+            batch.add(new Object[]{genre + 1, "genre " + genre});
+        }
+        jdbcTemplate.batchUpdate("insert into genres (genre_id, genre_name) values (?, ?)", batch);
+        batch.clear();
+        jdbcTemplate.execute("alter table genres alter column genre_id restart with " + (GENRES + 1));
+
+        for (int id = 1; id <= rows; id++) {
+            batch.add(new Object[]{id, "Book " + id, 1 + id % GENRES, 1 + (id - 1) % authors});
+            if (batch.size() == INSERT_BATCH_SIZE) {
+                jdbcTemplate.batchUpdate("insert into books (id, title, genre_id, author_id) values (?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        jdbcTemplate.batchUpdate("insert into books (id, title, genre_id, author_id) values (?, ?, ?, ?)", batch);
+        jdbcTemplate.execute("alter sequence books_seq restart with " + (rows + 1));
+    }
+}
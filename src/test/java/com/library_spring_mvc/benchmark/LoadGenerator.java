@@ -0,0 +1,335 @@
+package com.library_spring_mvc.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Open-model HTTP load test. Boots the application on the H2 test profile with a synthetic catalogue
+ * (see {@link BenchmarkApplication}), then issues requests at a fixed arrival rate regardless of how
+ * quickly earlier ones complete. Response times are measured from the moment a request was
+ * <em>scheduled</em> to be sent, so a stalled server or client is charged for every request it held
+ * back (coordinated-omission correction); service times from the actual send are reported alongside.
+ * Requests still outstanding when the drain after the run gives up are recorded as timeouts at the
+ * highest trackable time rather than dropped, since they are the worst of the tail. Throughput is
+ * what was achieved: the responses received over the measured time including the drain.
+ * <p>
+ * Writes {@code report.json} plus one HdrHistogram percentile distribution ({@code .hgrm}) per
+ * endpoint to {@code loadtest.report-dir}:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.library_spring_mvc.benchmark.LoadGenerator \
+ *     -Dloadtest.rows=100000 -Dloadtest.rate=300 -Dloadtest.duration-seconds=60 \
+ *     -Dloadtest.mix=book-by-id=60,book-page=20,book-create=20
+ * </pre>
+ */
+public final class LoadGenerator {
+
+    private static final String DEFAULT_MIX = "book-by-id=40,book-page=15,book-cursor=10,books-by-author=10,"
+            + "book-search=8,book-autocomplete=7,book-create=5,book-update=3,author-create=2";
+
+    private static final int ROWS = Integer.getInteger("loadtest.rows", 10_000);
+    private static final double RATE = Double.parseDouble(System.getProperty("loadtest.rate", "200"));
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("loadtest.warmup-seconds", 10));
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("loadtest.duration-seconds", 30));
+    private static final String MIX = System.getProperty("loadtest.mix", DEFAULT_MIX);
+    private static final Path REPORT_DIR = Path.of(System.getProperty("loadtest.report-dir", "target/loadtest"));
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(2);
+    private static final double NANOS_PER_MILLI = 1_000_000d;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final String baseUrl;
+    private final int authors = BenchmarkApplication.authors(ROWS);
+    private final Map<String, Operation> operations = new LinkedHashMap<>();
+
+    private LoadGenerator(int port) {
+        this.baseUrl = "http://localhost:" + port + "/api";
+        operations.put("book-by-id", new Operation(random -> get("/books/" + randomBook(random))));
+        operations.put("book-page", new Operation(random -> get("/books?size=20&page=" + random.nextInt(50))));
+        operations.put("book-cursor", new Operation(random -> get("/books?size=20&after=" + cursor(randomBook(random)))));
+        operations.put("books-by-author", new Operation(random -> get("/books/author_name/"
+                + encode(BenchmarkApplication.authorName(1 + random.nextInt(authors))).replace("+", "%20")
+                + "?size=20")));
+        operations.put("book-search", new Operation(random -> get("/books/search?size=20&q="
+                + encode("book " + randomBook(random)))));
+        operations.put("book-autocomplete", new Operation(random -> get("/books/autocomplete?prefix="
+                + encode("Book " + random.nextInt(1, 1000)))));
+        operations.put("book-create", new Operation(random -> json("POST", "/books",
+                "{\"title\":\"Load test book\",\"genre\":\"load\",\"authorId\":" + (1 + random.nextInt(authors)) + "}")));
+        operations.put("book-update", new Operation(random -> json("PUT", "/books/" + randomBook(random),
+                "{\"title\":\"Updated book\",\"genre\":\"load\",\"authorId\":" + (1 + random.nextInt(authors)) + "}")));
+        operations.put("author-create", new Operation(random -> json("POST", "/authors",
+                "{\"name\":\"Load test author " + random.nextInt(1_000_000) + "\"}")));
+    }
+
+    public static void main(String[] args) throws Exception {
+        ConfigurableApplicationContext context = BenchmarkApplication.start(ROWS);
+        try {
+            LoadGenerator generator = new LoadGenerator(((WebServerApplicationContext) context).getWebServer().getPort());
+            Map<String, Integer> mix = generator.parseMix(MIX);
+            System.out.printf("rows=%d rate=%.0f/s warmup=%ss duration=%ss mix=%s%n",
+                    ROWS, RATE, WARMUP.toSeconds(), DURATION.toSeconds(), mix);
+
+            generator.drive(mix, WARMUP);
+            generator.report(mix, generator.drive(mix, DURATION));
+        } finally {
+            context.close();
+        }
+        System.exit(0);
+    }
+
+    private Run drive(Map<String, Integer> mix, Duration duration) throws Exception {
+        String[] schedule = weightedSchedule(mix);
+        Map<String, EndpointStats> stats = new TreeMap<>();
+        mix.keySet().forEach(name -> stats.put(name, new EndpointStats()));
+
+        Set<Outstanding> inFlight = ConcurrentHashMap.newKeySet();
+        long intervalNanos = Math.round(1_000_000_000d / RATE);
+        long requests = Math.round(RATE * duration.toSeconds());
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long start = System.nanoTime();
+        for (long i = 0; i < requests; i++) {
+            long intended = start + i * intervalNanos;
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            String name = schedule[random.nextInt(schedule.length)];
+            EndpointStats endpoint = stats.get(name);
+            HttpRequest request = operations.get(name).request().apply(random);
+            Outstanding outstanding = new Outstanding(endpoint, intended, System.nanoTime(), new AtomicBoolean());
+            inFlight.add(outstanding);
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        if (outstanding.recorded().compareAndSet(false, true)) {
+                            endpoint.record(intended, outstanding.sent(), System.nanoTime(),
+                                    failure == null ? response.statusCode() : -1);
+                        }
+                        inFlight.remove(outstanding);
+                    });
+        }
+        long drainDeadline = System.nanoTime() + REQUEST_TIMEOUT.toNanos();
+        while (!inFlight.isEmpty() && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        int timedOut = 0;
+        for (Outstanding outstanding : inFlight) {
+            if (outstanding.recorded().compareAndSet(false, true)) {
+                outstanding.endpoint().recordTimeout();
+                timedOut++;
+            }
+        }
+        if (timedOut > 0) {
+            System.out.printf("%d requests were still outstanding when the run ended, recorded as timeouts%n",
+                    timedOut);
+        }
+        return new Run(stats, elapsedNanos);
+    }
+
+    private void report(Map<String, Integer> mix, Run run) throws IOException {
+        Files.createDirectories(REPORT_DIR);
+        double seconds = run.elapsedNanos() / 1_000_000_000d;
+        EndpointStats total = new EndpointStats();
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        System.out.printf("%n%-18s %9s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<String, EndpointStats> entry : run.endpoints().entrySet()) {
+            EndpointStats endpoint = entry.getValue();
+            total.add(endpoint);
+            endpoints.put(entry.getKey(), endpoint.toReport(seconds));
+            print(entry.getKey(), endpoint, seconds);
+            writeDistribution(entry.getKey(), endpoint.responseTime);
+        }
+        print("total", total, seconds);
+        writeDistribution("total", total.responseTime);
+
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("rows", ROWS);
+        config.put("targetRate", RATE);
+        config.put("warmupSeconds", WARMUP.toSeconds());
+        config.put("durationSeconds", DURATION.toSeconds());
+        config.put("mix", mix);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("config", config);
+        report.put("elapsedSeconds", seconds);
+        report.put("total", total.toReport(seconds));
+        report.put("endpoints", endpoints);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(REPORT_DIR.resolve("report.json").toFile(), report);
+        System.out.printf("%nReport written to %s%n", REPORT_DIR.toAbsolutePath());
+    }
+
+    private static void print(String name, EndpointStats stats, double seconds) {
+        Histogram histogram = stats.responseTime;
+        System.out.printf("%-18s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n", name, histogram.getTotalCount(),
+                stats.errors.sum(), stats.throughput(seconds),
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue()));
+    }
+
+    private static void writeDistribution(String name, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(REPORT_DIR.resolve(name + ".hgrm")),
+                false, StandardCharsets.UTF_8)) {
+            histogram.outputPercentileDistribution(out, NANOS_PER_MILLI);
+        }
+    }
+
+    private Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] entry = part.trim().split("=");
+            if (entry.length != 2 || !operations.containsKey(entry[0].trim())) {
+                throw new IllegalArgumentException("Unknown mix entry '" + part + "', expected one of "
+                        + operations.keySet() + " as name=weight");
+            }
+            weights.put(entry[0].trim(), Integer.parseInt(entry[1].trim()));
+        }
+        return weights;
+    }
+
+    private static String[] weightedSchedule(Map<String, Integer> mix) {
+        return mix.entrySet().stream()
+                .flatMap(entry -> Collections.nCopies(entry.getValue(), entry.getKey()).stream())
+                .toArray(String[]::new);
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(REQUEST_TIMEOUT).GET().build();
+    }
+
+    private HttpRequest json(String method, String path, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static long randomBook(ThreadLocalRandom random) {
+        return 1 + random.nextInt(ROWS);
+    }
+
+    private static String cursor(long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(("id:" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / NANOS_PER_MILLI;
+    }
+
+    private record Operation(Function<ThreadLocalRandom, HttpRequest> request) {
+    }
+
+    // recorded exactly once, by its completion or as a timeout when the drain gives up on it
+    private record Outstanding(EndpointStats endpoint, long intended, long sent, AtomicBoolean recorded) {
+    }
+
+    private record Run(Map<String, EndpointStats> endpoints, long elapsedNanos) {
+    }
+
+    private static final class EndpointStats {
+
+        // from the scheduled send time: what a client arriving on schedule would have experienced
+        private final Histogram responseTime = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3);
+        // from the actual send time: what the server alone took
+        private final Histogram serviceTime = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3);
+        private final ConcurrentMap<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+
+        private void record(long intended, long sent, long completed, int status) {
+            responseTime.recordValue(Math.min(completed - intended, HIGHEST_TRACKABLE_NANOS));
+            serviceTime.recordValue(Math.min(completed - sent, HIGHEST_TRACKABLE_NANOS));
+            statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+            if (status < 200 || (status >= 300 && status != 304)) {
+                errors.increment();
+            }
+        }
+
+        // never answered: charged the highest trackable time, the most the histograms can hold
+        private void recordTimeout() {
+            responseTime.recordValue(HIGHEST_TRACKABLE_NANOS);
+            serviceTime.recordValue(HIGHEST_TRACKABLE_NANOS);
+            statuses.computeIfAbsent(-1, key -> new LongAdder()).increment();
+            errors.increment();
+            timeouts.increment();
+        }
+
+        private double throughput(double seconds) {
+            return (responseTime.getTotalCount() - timeouts.sum()) / seconds;
+        }
+
+        private void add(EndpointStats other) {
+            responseTime.add(other.responseTime);
+            serviceTime.add(other.serviceTime);
+            other.statuses.forEach((status, count) ->
+                    statuses.computeIfAbsent(status, key -> new LongAdder()).add(count.sum()));
+            errors.add(other.errors.sum());
+            timeouts.add(other.timeouts.sum());
+        }
+
+        private Map<String, Object> toReport(double seconds) {
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("requests", responseTime.getTotalCount());
+            report.put("errors", errors.sum());
+            report.put("timeouts", timeouts.sum());
+            report.put("throughputPerSecond", throughput(seconds));
+            Map<String, Long> byStatus = new TreeMap<>();
+            statuses.forEach((status, count) -> byStatus.put(status < 0 ? "failed" : status.toString(), count.sum()));
+            report.put("statuses", byStatus);
+            report.put("responseTimeMs", percentiles(responseTime));
+            report.put("serviceTimeMs", percentiles(serviceTime));
+            return report;
+        }
+
+        private static Map<String, Double> percentiles(Histogram histogram) {
+            Map<String, Double> percentiles = new LinkedHashMap<>();
+            if (histogram.getTotalCount() == 0) {
+                return percentiles;
+            }
+            percentiles.put("mean", histogram.getMean() / NANOS_PER_MILLI);
+            for (double percentile : new double[]{50, 90, 99, 99.9, 99.99}) {
+                percentiles.put("p" + String.valueOf(percentile).replaceAll("\\.0$", ""),
+                        millis(histogram.getValueAtPercentile(percentile)));
+            }
+            percentiles.put("max", millis(histogram.getMaxValue()));
+            return percentiles;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.library_spring_mvc.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Starts the packaged application as a separate JVM, first as the plain executable jar and then
+ * as the extracted jar with the AOT-generated initializers and the class-data sharing archive of
+ * the {@code fast-startup} profile, and prints the time to the first successful request and the
+ * resident set size at that moment, median of {@code -Dbenchmark.runs} starts each. The H2 driver
+ * of the test classpath is added to the application's class path so that no database server is
+ * needed; {@code -Dbenchmark.jdbc-url} points both at another database instead.
+ * <p>
+ * The archive only works for the JVM that recorded it, so run this on the same Java as the build:
+ * <pre>
+ * mvn -Pfast-startup -DskipTests package
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.library_spring_mvc.benchmark.StartupBenchmark -Dbenchmark.runs=5
+ * </pre>
+ */
+public final class StartupBenchmark {
+
+    private static final int RUNS = Integer.getInteger("benchmark.runs", 5);
+    private static final Path TARGET = Path.of(System.getProperty("benchmark.target", "target"));
+    private static final String JAR = System.getProperty("benchmark.jar", "library_spring_mvc-1.0.0.jar");
+    private static final String JDBC_URL = System.getProperty("benchmark.jdbc-url");
+    private static final Duration TIMEOUT = Duration.ofSeconds(Long.getLong("benchmark.timeout-seconds", 120));
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path extracted = TARGET.resolve("fast-startup");
+        if (!Files.exists(extracted.resolve("application.jsa"))) {
+            throw new IllegalStateException("No class-data sharing archive in " + extracted.toAbsolutePath()
+                    + ", build it with: mvn -Pfast-startup -DskipTests package");
+        }
+        System.out.printf("runs=%d java=%s database=%s%n", RUNS, Runtime.version(), JDBC_URL == null ? "h2" : JDBC_URL);
+
+        List<Result> results = new ArrayList<>();
+        // the fat jar launcher unpacks nothing, it reads the nested jars in place like java -jar does
+        results.add(measure("default", TARGET, List.of(),
+                TARGET.resolve(JAR).toAbsolutePath(), "org.springframework.boot.loader.launch.JarLauncher"));
+        results.add(measure("optimized", extracted,
+                List.of("-XX:SharedArchiveFile=application.jsa", "-Dspring.aot.enabled=true"),
+                Path.of(JAR), "com.library_spring_mvc.LibrarySpringMvcApplication"));
+
+        System.out.printf("%n%-10s %22s %12s%n", "mode", "first request ms", "RSS MiB");
+        for (Result result : results) {
+            System.out.printf("%-10s %22d %12.1f%n", result.mode, result.firstRequestMillis, result.rssKib / 1024d);
+        }
+        System.exit(0);
+    }
+
+    private static Result measure(String mode, Path workingDirectory, List<String> jvmOptions,
+                                  Path jar, String mainClass) throws Exception {
+        long[] firstRequest = new long[RUNS];
+        long[] rss = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            Result result = start(mode, workingDirectory, jvmOptions, jar, mainClass);
+            firstRequest[run] = result.firstRequestMillis;
+            rss[run] = result.rssKib;
+            System.out.printf("%s run %d: %d ms, %d KiB%n", mode, run + 1, result.firstRequestMillis, result.rssKib);
+        }
+        Result median = new Result();
+        median.mode = mode;
+        median.firstRequestMillis = median(firstRequest);
+        median.rssKib = median(rss);
+        return median;
+    }
+
+    private static Result start(String mode, Path workingDirectory, List<String> jvmOptions,
+                                Path jar, String mainClass) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(JDBC_URL == null ? jar + File.pathSeparator + h2Jar() : jar.toString());
+        command.add(mainClass);
+        command.add("--server.port=" + port);
+        command.add("--spring.jpa.show-sql=false");
+        command.add("--logging.level.root=WARN");
+        if (JDBC_URL == null) {
+            command.add("--spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+            command.add("--spring.datasource.driver-class-name=org.h2.Driver");
+            command.add("--spring.datasource.username=sa");
+            command.add("--spring.datasource.password=");
+            command.add("--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect");
+        } else {
+            command.add("--spring.datasource.url=" + JDBC_URL);
+        }
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(1))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/books?size=1"))
+                .GET()
+                .build();
+        File log = Files.createTempFile("startup-" + mode, ".log").toFile();
+        long started = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(workingDirectory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+        try {
+            long deadline = started + TIMEOUT.toNanos();
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(mode + " exited with " + process.exitValue() + ", see " + log);
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException(mode + " did not answer within " + TIMEOUT + ", see " + log);
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        break;
+                    }
+                } catch (IOException notListeningYet) {
+                    // the port opens late in the startup, keep polling
+                }
+                Thread.sleep(5);
+            }
+            Result result = new Result();
+            result.firstRequestMillis = (System.nanoTime() - started) / 1_000_000;
+            result.rssKib = residentSetKib(process.pid());
+            log.delete();
+            return result;
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    // VmRSS of /proc/<pid>/status, Linux only; reported as 0 elsewhere
+    private static long residentSetKib(long pid) throws IOException {
+        Path status = Path.of("/proc", Long.toString(pid), "status");
+        if (!Files.exists(status)) {
+            return 0;
+        }
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        }
+        return 0;
+    }
+
+    private static String h2Jar() throws Exception {
+        return Path.of(org.h2.Driver.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static final class Result {
+        private String mode;
+        private long firstRequestMillis;
+        private long rssKib;
+    }
+}
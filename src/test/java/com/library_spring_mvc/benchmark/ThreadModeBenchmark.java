@@ -0,0 +1,233 @@
+package com.library_spring_mvc.benchmark;
+
+import com.library_spring_mvc.LibrarySpringMvcApplication;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Runs the same closed-loop workload against the application twice, once with Tomcat's platform
+ * thread pool and once in the {@code virtual-threads} profile, and prints throughput and latency
+ * percentiles for both. The H2 test database answers in microseconds, so every JDBC statement is
+ * delayed by {@code -Dbenchmark.db-latency-ms} to stand in for the round trip to a real database.
+ * <p>
+ * Besides the client-side numbers it prints the mean time requests waited for a pool connection,
+ * which tells whether the tail comes from queueing on the pool or from somewhere else.
+ * <p>
+ * The comparison needs a Java 21 runtime and refuses to run on an older one, because a lone platform
+ * row is easily mistaken for it; {@code -Dbenchmark.platform-only=true} measures just that mode.
+ * Run it on a multi-core host, on one core both modes are CPU-bound and the comparison says little:
+ * <pre>
+ * JAVA_HOME=/path/to/jdk21 mvn -Pjava21 test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.library_spring_mvc.benchmark.ThreadModeBenchmark \
+ *     -Dbenchmark.clients=400 -Dbenchmark.pool-size=20
+ * </pre>
+ */
+public final class ThreadModeBenchmark {
+
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 400);
+    private static final int POOL_SIZE = Integer.getInteger("benchmark.pool-size", 20);
+    private static final int BOOKS = Integer.getInteger("benchmark.books", 10_000);
+    private static final long DB_LATENCY_MS = Long.getLong("benchmark.db-latency-ms", 2);
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("benchmark.warmup-seconds", 5));
+    private static final Duration MEASUREMENT = Duration.ofSeconds(Long.getLong("benchmark.seconds", 20));
+    private static final boolean PLATFORM_ONLY = Boolean.getBoolean("benchmark.platform-only");
+
+    private ThreadModeBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (!PLATFORM_ONLY && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("The virtual-thread run needs Java 21, this is " + Runtime.version()
+                    + "; pass -Dbenchmark.platform-only=true to measure only the platform threads");
+        }
+        System.out.printf("java=%s cores=%d clients=%d pool=%d books=%d db-latency=%dms warmup=%ss measurement=%ss%n",
+                Runtime.version(), Runtime.getRuntime().availableProcessors(), CLIENTS, POOL_SIZE, BOOKS,
+                DB_LATENCY_MS, WARMUP.toSeconds(), MEASUREMENT.toSeconds());
+        List<Result> results = new ArrayList<>();
+        results.add(run(false));
+        if (!PLATFORM_ONLY) {
+            results.add(run(true));
+        }
+
+        System.out.printf("%n%-9s %12s %9s %9s %9s %9s %8s %13s%n",
+                "mode", "requests/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors", "pool wait ms");
+        for (Result result : results) {
+            System.out.printf("%-9s %12.0f %9.2f %9.2f %9.2f %9.2f %8d %13.2f%n", result.mode, result.throughput,
+                    result.percentile(50), result.percentile(99), result.percentile(99.9),
+                    result.percentile(100), result.errors, result.meanPoolWaitMillis);
+        }
+        System.exit(0);
+    }
+
+    private static Result run(boolean virtualThreads) throws Exception {
+        String mode = virtualThreads ? "virtual" : "platform";
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(
+                LibrarySpringMvcApplication.class, SimulatedDatabaseLatency.class)
+                .profiles(virtualThreads ? new String[]{"test", "virtual-threads"} : new String[]{"test"})
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark-" + mode + ";DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+                        "--spring.datasource.hikari.minimum-idle=" + POOL_SIZE,
+                        "--spring.datasource.hikari.connection-timeout=30000",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN");
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            String baseUrl = "http://localhost:" + port + "/api";
+            seed(client, baseUrl);
+
+            System.out.printf("%s: warming up%n", mode);
+            drive(client, baseUrl, WARMUP);
+            System.out.printf("%s: measuring%n", mode);
+            Timer acquire = context.getBean(MeterRegistry.class).find("hikaricp.connections.acquire").timer();
+            double waitedBefore = acquire == null ? 0 : acquire.totalTime(TimeUnit.MILLISECONDS);
+            long acquiredBefore = acquire == null ? 0 : acquire.count();
+            Result result = drive(client, baseUrl, MEASUREMENT);
+            result.mode = mode;
+            if (acquire != null && acquire.count() > acquiredBefore) {
+                result.meanPoolWaitMillis = (acquire.totalTime(TimeUnit.MILLISECONDS) - waitedBefore)
+                        / (acquire.count() - acquiredBefore);
+            } else {
+                result.meanPoolWaitMillis = Double.NaN;
+            }
+            return result;
+        } finally {
+            context.close();
+        }
+    }
+
+    private static void seed(HttpClient client, String baseUrl) throws Exception {
+        send(client, HttpRequest.newBuilder(URI.create(baseUrl + "/authors"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"Benchmark Author\"}"))
+                .build());
+        String books = IntStream.rangeClosed(1, BOOKS)
+                .mapToObj(i -> "{\"title\":\"Book " + i + "\",\"genre\":\"genre " + (i % 20) + "\",\"authorId\":1}")
+                .collect(Collectors.joining("\n"));
+        send(client, HttpRequest.newBuilder(URI.create(baseUrl + "/books/import"))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(books))
+                .build());
+    }
+
+    // 70% single-book reads, 30% listing pages; each client issues its next request as soon as
+    // the previous one completes.
+    private static Result drive(HttpClient client, String baseUrl, Duration duration) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        long[][] latencies = new long[CLIENTS][];
+        long[] errors = new long[CLIENTS];
+        CountDownLatch done = new CountDownLatch(CLIENTS);
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        for (int c = 0; c < CLIENTS; c++) {
+            int clientId = c;
+            clients.execute(() -> {
+                long[] samples = new long[1024];
+                int count = 0;
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    String path = random.nextInt(10) < 7
+                            ? "/books/" + (1 + random.nextInt(BOOKS))
+                            : "/books?size=20&page=" + random.nextInt(BOOKS / 20);
+                    long started = System.nanoTime();
+                    try {
+                        if (send(client, HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build()) != 200) {
+                            errors[clientId]++;
+                        }
+                    } catch (Exception ex) {
+                        errors[clientId]++;
+                        LockSupport.parkNanos(1_000_000);
+                    }
+                    if (count == samples.length) {
+                        samples = Arrays.copyOf(samples, count * 2);
+                    }
+                    samples[count++] = System.nanoTime() - started;
+                }
+                latencies[clientId] = Arrays.copyOf(samples, count);
+                done.countDown();
+            });
+        }
+        done.await();
+        clients.shutdown();
+        clients.awaitTermination(1, TimeUnit.MINUTES);
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        Result result = new Result();
+        result.latencies = all;
+        result.throughput = all.length / (double) duration.toSeconds();
+        result.errors = Arrays.stream(errors).sum();
+        return result;
+    }
+
+    private static int send(HttpClient client, HttpRequest request) throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static final class Result {
+        private String mode;
+        private long[] latencies;
+        private double throughput;
+        private long errors;
+        private double meanPoolWaitMillis;
+
+        private double percentile(double percentile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(index, latencies.length - 1))] / 1_000_000d;
+        }
+    }
+
+    // Registered explicitly as a source, deliberately not a @Configuration so that component
+    // scanning from the regular test suite never picks it up.
+    static class SimulatedDatabaseLatency {
+
+        @Bean
+        static BeanPostProcessor simulatedDatabaseLatencyPostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource dataSource) {
+                        return ProxyDataSourceBuilder.create(dataSource)
+                                .beforeQuery((execution, queries) -> sleep())
+                                .build();
+                    }
+                    return bean;
+                }
+            };
+        }
+
+        private static void sleep() {
+            try {
+                Thread.sleep(DB_LATENCY_MS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.library_spring_mvc.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "library.admission.enabled=true",
+        "library.admission.rate-limit.requests-per-second=0.1",
+        "library.admission.rate-limit.burst=2"
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@Sql(scripts = "/data.sql")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class AdmissionControlTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void shouldRateLimitEachAddressSeparatelyTest() throws Exception {
+        mockMvc.perform(get("/api/books/author_name/Lev Tolstoy").with(from("10.0.0.1")))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/books/1").with(from("10.0.0.1")))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/books/author_name/Lev Tolstoy").with(from("10.0.0.1")))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "10"));
+        mockMvc.perform(get("/api/authors/cache-stats").with(from("10.0.0.2")))
+                .andExpect(status().isOk());
+
+        assertEquals(1, meterRegistry.get("admission.rejections").tag("reason", "rate-limit").counter().count());
+        assertEquals(3, meterRegistry.get("admission.queue.wait").tag("outcome", "admitted").timer().count());
+        assertEquals(0, meterRegistry.get("admission.concurrency.in-flight").gauge().value());
+    }
+
+    @Test
+    void shouldNotResetRateLimitForNewClientIdTest() throws Exception {
+        for (int request = 0; request < 2; request++) {
+            mockMvc.perform(get("/api/books/1").with(from("10.0.0.1")).header("X-Client-Id", "client-" + request))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get("/api/books/1").with(from("10.0.0.1")).header("X-Client-Id", "client-2"))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void shouldKeepExportsOutOfAdaptiveLimitTest() throws Exception {
+        mockMvc.perform(get("/api/books/export").with(from("10.0.0.1")))
+                .andExpect(status().isOk());
+
+        assertEquals(0, meterRegistry.get("admission.queue.wait").tag("outcome", "admitted").timer().count());
+        assertEquals(0, meterRegistry.get("admission.concurrency.in-flight").gauge().value());
+    }
+
+    @Test
+    void shouldLeaveOtherEndpointsAloneTest() throws Exception {
+        for (int request = 0; request < 5; request++) {
+            mockMvc.perform(get("/api/statistics").with(from("10.0.0.1")))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    private static RequestPostProcessor from(String address) {
+        return request -> {
+            request.setRemoteAddr(address);
+            return request;
+        };
+    }
+}
@@ -1,24 +1,28 @@
 package com.library_spring_mvc.controller;
 
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@SpringBootTest
+@SpringBootTest(properties = {
+        "library.author-delete.async-threshold=5",
+        "library.author-delete.chunk-size=2"})
 @ActiveProfiles("test")
 @AutoConfigureMockMvc
-@Sql(scripts = "/schema.sql")
 @Sql(scripts = "/data.sql")
 @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
 class AuthorControllerTest {
@@ -42,4 +46,53 @@ class AuthorControllerTest {
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isNoContent());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldDeleteLargeAuthorAsynchronouslyTest() throws Exception {
+        mockMvc.perform(post("/api/books")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\": \"Resurrection\", \"genre\": \"novel\", \"authorId\": 1}"))
+                .andExpect(status().isOk());
+
+        String location = mockMvc.perform(delete("/api/authors/1"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.authorId").value(1))
+                .andExpect(jsonPath("$.totalBooks").value(6))
+                .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+
+        String status = null;
+        for (int attempt = 0; attempt < 100 && !"COMPLETED".equals(status); attempt++) {
+            Thread.sleep(50);
+            status = JsonPath.read(mockMvc.perform(get(location))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString(), "$.status");
+        }
+        assertEquals("COMPLETED", status);
+        mockMvc.perform(get(location))
+                .andExpect(jsonPath("$.deletedBooks").value(6))
+                .andExpect(jsonPath("$.finishedAt").isNotEmpty());
+
+        mockMvc.perform(get("/api/books/1"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/authors/deletions/unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void shouldReturnFoundAndMissingAuthorsTest() throws Exception {
+        mockMvc.perform(post("/api/authors/batch-get")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\": [1, 99]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.found[0].name").value("Lev Tolstoy"))
+                .andExpect(jsonPath("$.missing[0]").value(99));
+    }
+
+    @Test
+    public void shouldReturnAuthorCacheStatisticsTest() throws Exception {
+        mockMvc.perform(get("/api/authors/cache-stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("authorsById"))
+                .andExpect(jsonPath("$[1].name").value("authorsByName"));
+    }
+}
@@ -1,26 +1,50 @@
 package com.library_spring_mvc.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.jayway.jsonpath.JsonPath;
 import com.library_spring_mvc.dto.BookDTO;
+import com.library_spring_mvc.service.BookAutocompleteIndex;
+import com.library_spring_mvc.service.BookSearchIndex;
+import com.library_spring_mvc.service.GenreDictionary;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.ByteArrayOutputStream;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static com.library_spring_mvc.controller.SqlStatementBudget.maxSqlStatements;
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @ActiveProfiles("test")
 @AutoConfigureMockMvc
-@Sql(scripts = "/schema.sql")
 @Sql(scripts = "/data.sql")
 @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
 class BookControllerTest {
@@ -28,12 +52,25 @@ class BookControllerTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private BookAutocompleteIndex bookAutocompleteIndex;
+
+    @Autowired
+    private GenreDictionary genreDictionary;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+    private final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
 
     private BookDTO bookDTO;
 
     @BeforeEach
     void setUp() {
+        // data.sql adds its genre after startup, so load it before the statement budgets below apply
+        genreDictionary.reload();
         bookDTO = new BookDTO();
         bookDTO.setTitle("Book 1");
         bookDTO.setGenre("Genre 1");
@@ -48,7 +85,8 @@ class BookControllerTest {
                         .param("sort", "title,asc")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.content[0].title").value("Anna Karenina"));
+                .andExpect(jsonPath("$.content[0].title").value("Anna Karenina"))
+                .andExpect(maxSqlStatements(2));
     }
 
     @Test
@@ -57,7 +95,8 @@ class BookControllerTest {
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id").value(1))
-                .andExpect(jsonPath("$.title").value("War and Peace"));
+                .andExpect(jsonPath("$.title").value("War and Peace"))
+                .andExpect(maxSqlStatements(1));
     }
 
     @Test
@@ -65,7 +104,8 @@ class BookControllerTest {
         mockMvc.perform(get("/api/books/title/{title}", "War and Peace")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.title").value("War and Peace"));
+                .andExpect(jsonPath("$.title").value("War and Peace"))
+                .andExpect(maxSqlStatements(1));
     }
 
     @Test
@@ -76,7 +116,8 @@ class BookControllerTest {
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.content[0].title").value("War and Peace"))
-                .andExpect(jsonPath("$.content[1].title").value("Fillipok"));
+                .andExpect(jsonPath("$.content[1].title").value("Fillipok"))
+                .andExpect(maxSqlStatements(2));
     }
 
     @Test
@@ -109,4 +150,475 @@ class BookControllerTest {
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isNoContent());
     }
+
+    @Test
+    void shouldImportBooksFromNdjsonAndReportRowErrorsTest() throws Exception {
+        String body = """
+                {"title": "Resurrection", "genre": "novel", "authorId": 1}
+                {"title": "Hadji Murat", "genre": "novel", "authorId": 42}
+                not json
+                {"genre": "novel", "authorId": 1}
+                """;
+
+        mockMvc.perform(post("/api/books/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalRows").value(4))
+                .andExpect(jsonPath("$.importedRows").value(1))
+                .andExpect(jsonPath("$.failedRows").value(3))
+                .andExpect(jsonPath("$.errors[?(@.line == 2)].message").value("Author not found with id: 42"))
+                .andExpect(jsonPath("$.errors[?(@.line == 4)].message").value("Title is required"));
+
+        mockMvc.perform(get("/api/books/title/{title}", "Resurrection"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.author.name").value("Lev Tolstoy"));
+    }
+
+    @Test
+    void shouldImportBooksFromCsvTest() throws Exception {
+        String body = """
+                title,genre,authorId
+                "Kreutzer Sonata, The",novella,1
+                Master and Man,,1
+                Bad Row,novel,abc
+                """;
+
+        mockMvc.perform(post("/api/books/import")
+                        .contentType("text/csv")
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalRows").value(3))
+                .andExpect(jsonPath("$.importedRows").value(2))
+                .andExpect(jsonPath("$.errors[0].line").value(4))
+                .andExpect(jsonPath("$.errors[0].message").value("Invalid author id: abc"));
+
+        mockMvc.perform(get("/api/books/title/{title}", "Kreutzer Sonata, The"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.genre").value("novella"));
+    }
+
+    @Test
+    void shouldImportBooksFromSmileSequenceAndCborArrayTest() throws Exception {
+        ByteArrayOutputStream smileBody = new ByteArrayOutputStream();
+        try (SequenceWriter books = smileMapper.writer().writeValues(smileBody)) {
+            books.write(Map.of("title", "Resurrection", "genre", "novel", "authorId", 1));
+            books.write(Map.of("title", "Hadji Murat", "genre", "novel", "authorId", "abc"));
+            books.write(Map.of("title", "Master and Man", "authorId", 42));
+            books.write(Map.of("title", "Father Sergius", "genre", "novella", "authorId", 1));
+        }
+
+        mockMvc.perform(post("/api/books/import")
+                        .contentType("application/x-jackson-smile")
+                        .content(smileBody.toByteArray()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalRows").value(4))
+                .andExpect(jsonPath("$.importedRows").value(2))
+                .andExpect(jsonPath("$.errors[0].line").value(2))
+                .andExpect(jsonPath("$.errors[1].line").value(3))
+                .andExpect(jsonPath("$.errors[1].message").value("Author not found with id: 42"));
+
+        byte[] cborBody = cborMapper.writeValueAsBytes(List.of(
+                Map.of("title", "Family Happiness", "genre", "novella", "authorId", 1),
+                Map.of("genre", "novel", "authorId", 1)));
+
+        mockMvc.perform(post("/api/books/import")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .content(cborBody))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalRows").value(2))
+                .andExpect(jsonPath("$.importedRows").value(1))
+                .andExpect(jsonPath("$.errors[0].message").value("Title is required"));
+
+        mockMvc.perform(get("/api/books/title/{title}", "Father Sergius"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.genre").value("novella"));
+        mockMvc.perform(get("/api/books/title/{title}", "Family Happiness"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldStopBinaryImportAtBrokenEncodingTest() throws Exception {
+        byte[] book = smileMapper.writeValueAsBytes(Map.of("title", "Resurrection", "genre", "novel", "authorId", 1));
+        byte[] truncated = Arrays.copyOf(book, book.length - 3);
+
+        mockMvc.perform(post("/api/books/import")
+                        .contentType("application/x-jackson-smile")
+                        .content(truncated))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.importedRows").value(0))
+                .andExpect(jsonPath("$.failedRows").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(1));
+    }
+
+    @Test
+    void shouldExportAllBooksAsNdjsonTest() throws Exception {
+        String expectedFirstLine =
+                "{\"id\":1,\"title\":\"War and Peace\",\"genre\":\"history\",\"authorId\":1,\"authorName\":\"Lev Tolstoy\"}";
+
+        String body = mockMvc.perform(get("/api/books/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(5, lines.length);
+        assertEquals(expectedFirstLine, lines[0]);
+        assertTrue(lines[4].contains("\"title\":\"Anna Karenina\""));
+    }
+
+    @Test
+    void shouldReturnBooksPageByPageWithCursorTest() throws Exception {
+        String nextCursor = JsonPath.read(mockMvc.perform(get("/api/books")
+                        .param("after", "")
+                        .param("size", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(3))
+                .andExpect(jsonPath("$.content[0].title").value("War and Peace"))
+                .andExpect(jsonPath("$.content[2].title").value("The sunday"))
+                .andExpect(maxSqlStatements(1))
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                .andReturn().getResponse().getContentAsString(), "$.nextCursor");
+
+        mockMvc.perform(get("/api/books")
+                        .param("after", nextCursor)
+                        .param("size", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[0].title").value("The childhood"))
+                .andExpect(jsonPath("$.content[1].title").value("Anna Karenina"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void shouldFilterBooksByGenreWithPaginationTest() throws Exception {
+        mockMvc.perform(post("/api/books")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(bookDTO)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.genre").value("Genre 1"));
+
+        mockMvc.perform(get("/api/books")
+                        .param("genre", "history")
+                        .param("page", "1")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(5))
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[0].id").value(3))
+                .andExpect(jsonPath("$.content[0].genre").value("history"))
+                .andExpect(maxSqlStatements(2));
+
+        mockMvc.perform(get("/api/books")
+                        .param("genre", "Genre 1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andExpect(jsonPath("$.content[0].title").value("Book 1"));
+
+        mockMvc.perform(get("/api/books")
+                        .param("genre", "poetry"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(0));
+
+        mockMvc.perform(get("/api/books")
+                        .param("genre", "Genre 1")
+                        .param("fields", "title"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andExpect(jsonPath("$.content[0].title").value("Book 1"));
+
+        mockMvc.perform(get("/api/books/summary")
+                        .param("genre", "Genre 1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andExpect(jsonPath("$.content[0].title").value("Book 1"));
+
+        mockMvc.perform(get("/api/books/summary")
+                        .param("genre", "poetry"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(0));
+
+        mockMvc.perform(get("/api/books")
+                        .param("genre", "history")
+                        .param("after", "")
+                        .param("size", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(3))
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                .andExpect(maxSqlStatements(1));
+    }
+
+    @Test
+    void shouldReturnFoundAndMissingBooksInOneQueryTest() throws Exception {
+        mockMvc.perform(post("/api/books/batch-get")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\": [3, 1, 42, 3]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.found.length()").value(2))
+                .andExpect(jsonPath("$.found[0].title").value("The sunday"))
+                .andExpect(jsonPath("$.found[1].author.name").value("Lev Tolstoy"))
+                .andExpect(jsonPath("$.missing[0]").value(42))
+                .andExpect(maxSqlStatements(1));
+
+        String tooMany = "{\"ids\": [" + LongStream.rangeClosed(1, 1001)
+                .mapToObj(Long::toString).collect(Collectors.joining(",")) + "]}";
+        mockMvc.perform(post("/api/books/batch-get")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(tooMany))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldNegotiateBinaryFormatsTest() throws Exception {
+        MediaType smile = MediaType.parseMediaType("application/x-jackson-smile");
+        byte[] book = mockMvc.perform(get("/api/books/1").accept(smile))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(smile))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+                .andReturn().getResponse().getContentAsByteArray();
+        JsonNode decoded = smileMapper.readTree(book);
+        assertEquals("War and Peace", decoded.get("title").asText());
+        assertEquals("Lev Tolstoy", decoded.get("author").get("name").asText());
+
+        byte[] page = mockMvc.perform(post("/api/books/batch-get")
+                        .contentType(smile)
+                        .content(smileMapper.writeValueAsBytes(Map.of("ids", new long[]{3, 42})))
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+        JsonNode found = cborMapper.readTree(page);
+        assertEquals("The sunday", found.get("found").get(0).get("title").asText());
+        assertEquals(42, found.get("missing").get(0).asLong());
+
+        mockMvc.perform(get("/api/books/1"))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void shouldReturnBooksByAuthorNameWithCursorTest() throws Exception {
+        mockMvc.perform(get("/api/books/author_name/{name}", "Lev Tolstoy")
+                        .param("after", "")
+                        .param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(5))
+                .andExpect(jsonPath("$.content[0].author.name").value("Lev Tolstoy"));
+
+        mockMvc.perform(get("/api/books/author_name/{name}", "Nobody")
+                        .param("after", ""))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldRejectMalformedCursorTest() throws Exception {
+        mockMvc.perform(get("/api/books")
+                        .param("after", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReportSqlStatementCountAndTimeHeadersTest() throws Exception {
+        mockMvc.perform(delete("/api/books/1"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().exists("X-SQL-Time-Ms"))
+                .andExpect(header().string("X-SQL-Statement-Count", "2"));
+    }
+
+    @Test
+    void shouldReturnOnlyRequestedFieldsTest() throws Exception {
+        mockMvc.perform(get("/api/books")
+                        .param("fields", "id,title,author.name")
+                        .param("page", "0")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(1))
+                .andExpect(jsonPath("$.content[0].title").value("War and Peace"))
+                .andExpect(jsonPath("$.content[0].author.name").value("Lev Tolstoy"))
+                .andExpect(jsonPath("$.content[0].genre").doesNotExist())
+                .andExpect(jsonPath("$.content[0].author.id").doesNotExist())
+                .andExpect(jsonPath("$.totalElements").value(5))
+                .andExpect(maxSqlStatements(2));
+    }
+
+    @Test
+    void shouldReturnRequestedFieldsForAuthorTest() throws Exception {
+        mockMvc.perform(get("/api/books/author_name/{name}", "Lev Tolstoy")
+                        .param("fields", "title")
+                        .param("sort", "title,asc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].title").value("Anna Karenina"))
+                .andExpect(jsonPath("$.content[0].id").doesNotExist());
+    }
+
+    @Test
+    void shouldRejectUnknownFieldTest() throws Exception {
+        mockMvc.perform(get("/api/books")
+                        .param("fields", "id,isbn"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnBookSummariesTest() throws Exception {
+        mockMvc.perform(get("/api/books/summary")
+                        .param("page", "0")
+                        .param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(5))
+                .andExpect(jsonPath("$.content[0].id").exists())
+                .andExpect(jsonPath("$.content[0].title").exists())
+                .andExpect(jsonPath("$.content[0].author").doesNotExist())
+                .andExpect(maxSqlStatements(1));
+    }
+
+    @Test
+    void shouldSearchBooksByTitleAndKeepIndexInSyncTest() throws Exception {
+        bookSearchIndex.rebuild();
+
+        mockMvc.perform(get("/api/books/search")
+                        .param("q", "war peace"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andExpect(jsonPath("$.content[0].title").value("War and Peace"));
+
+        mockMvc.perform(post("/api/books")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(bookDTO)))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/books/1"))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/books/search")
+                        .param("q", "tolstoy"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(5))
+                .andExpect(jsonPath("$.content[?(@.title == 'Book 1')]").exists())
+                .andExpect(jsonPath("$.content[?(@.title == 'War and Peace')]").doesNotExist());
+    }
+
+    @Test
+    void shouldAutocompleteTitlesAndAuthorsWithoutSqlTest() throws Exception {
+        bookAutocompleteIndex.rebuild();
+
+        mockMvc.perform(get("/api/books/autocomplete")
+                        .param("prefix", "the")
+                        .param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].text").value("The childhood"))
+                .andExpect(jsonPath("$[1].text").value("The sunday"))
+                .andExpect(maxSqlStatements(0));
+
+        mockMvc.perform(post("/api/books")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(bookDTO)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/books/autocomplete")
+                        .param("prefix", "LEV"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].text").value("Lev Tolstoy"))
+                .andExpect(jsonPath("$[0].type").value("author"))
+                .andExpect(jsonPath("$[0].books").value(6));
+    }
+
+    @Test
+    void shouldAnswerConditionalBookReadWithNotModifiedTest() throws Exception {
+        String eTag = mockMvc.perform(get("/api/books/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1-0\""))
+                .andExpect(jsonPath("$.version").doesNotExist())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/books/1").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""))
+                .andExpect(maxSqlStatements(1));
+
+        mockMvc.perform(put("/api/books/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(bookDTO)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/books/1").header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1-1\""))
+                .andExpect(jsonPath("$.title").value("Book 1"));
+    }
+
+    @Test
+    void shouldKeepETagsOfBinaryFormatsApartFromJsonTest() throws Exception {
+        MediaType smile = MediaType.parseMediaType("application/x-jackson-smile");
+        String jsonETag = mockMvc.perform(get("/api/books/1"))
+                .andReturn().getResponse().getHeader("ETag");
+        String smileETag = mockMvc.perform(get("/api/books/1").accept(smile))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1-0-smile\""))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/books/1").accept(smile).header("If-None-Match", jsonETag))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/books/1").accept(smile).header("If-None-Match", smileETag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)));
+        mockMvc.perform(get("/api/books/1").accept("application/cbor;q=0.5, */*;q=0.8"))
+                .andExpect(header().string("ETag", jsonETag));
+
+        String listETag = mockMvc.perform(get("/api/books").param("size", "2"))
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/api/books").param("size", "2")
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .header("If-None-Match", listETag))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR));
+    }
+
+    @Test
+    void shouldAnswerConditionalReadByTitleWithNotModifiedTest() throws Exception {
+        String eTag = mockMvc.perform(get("/api/books/title/{title}", "War and Peace"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1-0\""))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/books/title/{title}", "War and Peace").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""))
+                .andExpect(maxSqlStatements(1));
+
+        mockMvc.perform(put("/api/books/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\": \"War and Peace\", \"genre\": \"novel\", \"authorId\": 1}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/books/title/{title}", "War and Peace").header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1-1\""));
+    }
+
+    @Test
+    void shouldAnswerConditionalListReadFromCatalogueCounterTest() throws Exception {
+        String eTag = mockMvc.perform(get("/api/books").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Last-Modified"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/books").param("size", "2").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""))
+                .andExpect(maxSqlStatements(0));
+
+        mockMvc.perform(post("/api/books")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(bookDTO)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/books").param("size", "2").header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(6));
+        // a change within the same second as a previous response must not be answered with 304
+        mockMvc.perform(get("/api/books").param("size", "2")
+                        .header("If-Modified-Since", ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(1)
+                                .format(DateTimeFormatter.RFC_1123_DATE_TIME)))
+                .andExpect(status().isOk());
+    }
 }
@@ -0,0 +1,99 @@
+package com.library_spring_mvc.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@Sql(scripts = "/data.sql")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class ChangeFeedControllerTest {
+
+    private static final Pattern FIRST_EVENT_ID = Pattern.compile("id:(\\S+)");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void shouldStreamCommittedChangesInOrderTest() throws Exception {
+        MvcResult feed = subscribe(null);
+
+        createBook("Resurrection");
+        mockMvc.perform(delete("/api/books/1"))
+                .andExpect(status().isNoContent());
+
+        String stream = awaitContent(feed, "\"type\":\"DELETED\"");
+        assertTrue(stream.contains("event:change"));
+        assertTrue(stream.contains("\"sequence\":1,\"entity\":\"book\",\"type\":\"CREATED\""));
+        assertTrue(stream.contains("\"title\":\"Resurrection\""));
+        assertTrue(stream.contains("\"sequence\":2,\"entity\":\"book\",\"type\":\"DELETED\",\"id\":1"));
+        assertTrue(stream.indexOf("Resurrection") < stream.indexOf("\"type\":\"DELETED\""));
+    }
+
+    @Test
+    void shouldResumeAfterLastEventIdTest() throws Exception {
+        MvcResult feed = subscribe(null);
+        createBook("Resurrection");
+        createBook("Hadji Murat");
+        Matcher firstId = FIRST_EVENT_ID.matcher(awaitContent(feed, "Hadji Murat"));
+        assertTrue(firstId.find());
+
+        String resumed = awaitContent(subscribe(firstId.group(1)), "Hadji Murat");
+
+        assertFalse(resumed.contains("Resurrection"));
+        assertTrue(resumed.contains("\"sequence\":2"));
+    }
+
+    @Test
+    void shouldAskForReloadWhenResumePointIsUnknownTest() throws Exception {
+        String stream = awaitContent(subscribe("previous-run-42"), "reload the catalogue");
+
+        assertTrue(stream.startsWith("event:reset\n"));
+    }
+
+    private MvcResult subscribe(String lastEventId) throws Exception {
+        return mockMvc.perform(lastEventId == null
+                        ? get("/api/changes")
+                        : get("/api/changes").header("Last-Event-ID", lastEventId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private void createBook(String title) throws Exception {
+        mockMvc.perform(post("/api/books")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\": \"" + title + "\", \"genre\": \"novel\", \"authorId\": 1}"))
+                .andExpect(status().isOk());
+    }
+
+    // events are written by a sender thread, part by part, so wait for the last part that matters
+    private static String awaitContent(MvcResult feed, String expected) throws Exception {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        String content = feed.getResponse().getContentAsString();
+        while (!content.contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            content = feed.getResponse().getContentAsString();
+        }
+        assertTrue(content.contains(expected), "Expected " + expected + " in " + content);
+        return content;
+    }
+}
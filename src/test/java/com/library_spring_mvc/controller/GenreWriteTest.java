@@ -0,0 +1,80 @@
+package com.library_spring_mvc.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Writes books with genres the database does not have yet through a pool of a single connection,
+ * which only works when the genre is inserted on the connection of the writing transaction. Flyway
+ * needs more than one connection, so it migrates the database through its own.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.hikari.maximum-pool-size=1",
+        "spring.datasource.hikari.connection-timeout=1000"
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@Sql(scripts = "/data.sql")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class GenreWriteTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        String url = "jdbc:h2:mem:genres-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        registry.add("spring.datasource.url", () -> url);
+        registry.add("spring.flyway.url", () -> url);
+        registry.add("spring.flyway.user", () -> "sa");
+        registry.add("spring.flyway.password", () -> "");
+    }
+
+    @Test
+    void shouldCreateBookWithNewGenreOnOneConnectionTest() throws Exception {
+        mockMvc.perform(post("/api/books")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\": \"Resurrection\", \"genre\": \"novel\", \"authorId\": 1}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.genre").value("novel"));
+
+        mockMvc.perform(get("/api/books").param("genre", "novel"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].title").value("Resurrection"));
+    }
+
+    @Test
+    void shouldImportBooksWithNewGenresOnOneConnectionTest() throws Exception {
+        String csv = """
+                title,genre,authorId
+                Resurrection,novel,1
+                Hadji Murat,novella,1
+                """;
+
+        mockMvc.perform(post("/api/books/import")
+                        .contentType("text/csv")
+                        .content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.importedRows").value(2));
+
+        mockMvc.perform(get("/api/books").param("genre", "novella"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].title").value("Hadji Murat"));
+    }
+}
@@ -0,0 +1,62 @@
+package com.library_spring_mvc.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Starts the application on a database that ddl-auto=update created before Flyway managed the
+ * schema, which Flyway baselines at V1 and upgrades with the later migrations only.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class LegacySchemaMigrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @DynamicPropertySource
+    static void legacyDatabase(DynamicPropertyRegistry registry) {
+        String url = "jdbc:h2:mem:legacy-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        new ResourceDatabasePopulator(new ClassPathResource("legacy-schema.sql"))
+                .execute(new DriverManagerDataSource(url, "sa", ""));
+        registry.add("spring.datasource.url", () -> url);
+    }
+
+    @Test
+    void shouldUpgradeLegacySchemaTest() throws Exception {
+        mockMvc.perform(get("/api/books/2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Anna Karenina"))
+                .andExpect(jsonPath("$.genre").value("novel"));
+    }
+
+    @Test
+    void shouldNumberNewBooksAfterExistingOnesTest() throws Exception {
+        mockMvc.perform(post("/api/books")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\": \"Resurrection\", \"genre\": \"novel\", \"authorId\": 1}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(greaterThan(2)));
+    }
+}
@@ -0,0 +1,73 @@
+package com.library_spring_mvc.controller;
+
+import com.library_spring_mvc.monitoring.SqlStatementCountingFilter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@Sql(scripts = "/data.sql")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class MetricsEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void shouldExposeEndpointPoolHibernateAndCacheMetricsTest() throws Exception {
+        mockMvc.perform(get("/api/books/1")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/books/author_name/Lev Tolstoy")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket{")))
+                .andExpect(content().string(containsString("uri=\"/api/books/{id}\"")))
+                .andExpect(content().string(containsString("hikaricp_connections_acquire_seconds_bucket{")))
+                .andExpect(content().string(containsString("hikaricp_connections_usage_seconds_bucket{")))
+                .andExpect(content().string(containsString("hibernate_query_executions_total{")))
+                .andExpect(content().string(containsString("hibernate_entities_loads_total{")))
+                .andExpect(content().string(containsString("hibernate_cache_query_requests_total{")))
+                .andExpect(content().string(containsString("cache_gets_total{cache=\"authorsByName\"")));
+    }
+
+    @Test
+    void shouldRecordStatementsRunWhileStreamingTheBodyTest() throws Exception {
+        mockMvc.perform(get("/api/books/export").header("TE", "trailers"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(SqlStatementCountingFilter.STATEMENT_COUNT_HEADER, "0"))
+                .andExpect(header().string(HttpHeaders.TRAILER, containsString(
+                        SqlStatementCountingFilter.STATEMENT_COUNT_TRAILER)));
+
+        DistributionSummary statements = meterRegistry.get("http.server.requests.sql.statements")
+                .tag("uri", "/api/books/export")
+                .summary();
+        assertEquals(1, statements.count());
+        assertTrue(statements.totalAmount() >= 1);
+
+        mockMvc.perform(get("/api/books/1"))
+                .andExpect(header().doesNotExist(HttpHeaders.TRAILER));
+    }
+}
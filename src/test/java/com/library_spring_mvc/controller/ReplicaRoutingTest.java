@@ -0,0 +1,124 @@
+package com.library_spring_mvc.controller;
+
+import com.library_spring_mvc.datasource.ReadWriteRoutingDataSource;
+import com.library_spring_mvc.datasource.ReadYourWritesFilter;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs the application against two in-memory databases, the primary and one replica. Nothing
+ * replicates between them, so the replica gets its own copy of the test data with marked titles,
+ * which shows which database answered a read.
+ */
+@SpringBootTest(properties = "library.datasource.read-your-writes-window=1m")
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@Sql(scripts = "/data.sql")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class ReplicaRoutingTest {
+
+    private static final String REPLICA_TITLE_SUFFIX = " (replica)";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${library.datasource.replicas[0].url}")
+    private String replicaUrl;
+
+    private JdbcTemplate replica;
+
+    @DynamicPropertySource
+    static void replicaProperties(DynamicPropertyRegistry registry) {
+        String name = "replica-" + UUID.randomUUID();
+        Flyway.configure()
+                .dataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "")
+                .load()
+                .migrate();
+        // IFEXISTS makes connections fail once the replica is shut down instead of opening an empty database
+        String url = "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1;IFEXISTS=TRUE";
+        registry.add("library.datasource.replicas[0].url", () -> url);
+    }
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource replicaDataSource = new DriverManagerDataSource(replicaUrl, "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("data.sql")).execute(replicaDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+        replica.update("update books set title = title || ?", REPLICA_TITLE_SUFFIX);
+    }
+
+    @Test
+    void shouldServeReadsFromReplicaTest() throws Exception {
+        mockMvc.perform(get("/api/books/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("War and Peace" + REPLICA_TITLE_SUFFIX));
+        mockMvc.perform(get("/api/books/title/Anna Karenina" + REPLICA_TITLE_SUFFIX))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldReadOwnWritesFromPrimaryTest() throws Exception {
+        mockMvc.perform(post("/api/books")
+                        .header(ReadYourWritesFilter.CLIENT_ID_HEADER, "alice")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\": \"Resurrection\", \"genre\": \"history\", \"authorId\": 1}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(6));
+
+        mockMvc.perform(get("/api/books/6").header(ReadYourWritesFilter.CLIENT_ID_HEADER, "alice"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Resurrection"));
+        mockMvc.perform(get("/api/books/1").header(ReadYourWritesFilter.CLIENT_ID_HEADER, "alice"))
+                .andExpect(jsonPath("$.title").value("War and Peace"));
+
+        // the replica has not received the book, and other clients keep reading from it
+        mockMvc.perform(get("/api/books/6").header(ReadYourWritesFilter.CLIENT_ID_HEADER, "bob"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/books/1").header(ReadYourWritesFilter.CLIENT_ID_HEADER, "bob"))
+                .andExpect(jsonPath("$.title").value("War and Peace" + REPLICA_TITLE_SUFFIX));
+    }
+
+    @Test
+    void shouldFallBackToPrimaryWhileReplicaIsDownTest() throws Exception {
+        ReadWriteRoutingDataSource routing = (ReadWriteRoutingDataSource) ((ProxyDataSource) dataSource).getDataSource();
+        mockMvc.perform(get("/api/books/1"))
+                .andExpect(jsonPath("$.title").value("War and Peace" + REPLICA_TITLE_SUFFIX));
+
+        replica.execute("shutdown");
+        routing.getReplicaPool().checkHealth();
+
+        assertEquals(0, routing.getReplicaPool().healthyReplicas());
+        mockMvc.perform(get("/api/books/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("War and Peace"));
+    }
+}
@@ -0,0 +1,23 @@
+package com.library_spring_mvc.controller;
+
+import com.library_spring_mvc.monitoring.SqlStatementCountingFilter;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class SqlStatementBudget {
+
+    private SqlStatementBudget() {
+    }
+
+    static ResultMatcher maxSqlStatements(int maxStatements) {
+        return result -> {
+            String header = result.getResponse().getHeader(SqlStatementCountingFilter.STATEMENT_COUNT_HEADER);
+            assertNotNull(header, "Response has no " + SqlStatementCountingFilter.STATEMENT_COUNT_HEADER + " header");
+            int statements = Integer.parseInt(header);
+            assertTrue(statements <= maxStatements, "Expected at most " + maxStatements
+                    + " SQL statements for " + result.getRequest().getRequestURI() + " but " + statements + " ran");
+        };
+    }
+}
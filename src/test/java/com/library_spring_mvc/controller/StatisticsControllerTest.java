@@ -0,0 +1,68 @@
+package com.library_spring_mvc.controller;
+
+import com.library_spring_mvc.service.CatalogueStatisticsService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static com.library_spring_mvc.controller.SqlStatementBudget.maxSqlStatements;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@Sql(scripts = "/data.sql")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class StatisticsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CatalogueStatisticsService catalogueStatisticsService;
+
+    @Test
+    void shouldServeStatisticsWithoutSqlAndFollowWritesTest() throws Exception {
+        catalogueStatisticsService.reconcile();
+
+        mockMvc.perform(get("/api/statistics"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalBooks").value(5))
+                .andExpect(jsonPath("$.totalAuthors").value(1))
+                .andExpect(jsonPath("$.booksPerGenre.history").value(5))
+                .andExpect(jsonPath("$.topAuthors[0].name").value("Lev Tolstoy"))
+                .andExpect(jsonPath("$.topAuthors[0].books").value(5))
+                .andExpect(jsonPath("$.topGenres[0].genre").value("history"))
+                .andExpect(maxSqlStatements(0));
+
+        mockMvc.perform(post("/api/books")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\": \"Resurrection\", \"genre\": \"novel\", \"authorId\": 1}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/statistics").param("top", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalBooks").value(6))
+                .andExpect(jsonPath("$.booksPerGenre.novel").value(1))
+                .andExpect(jsonPath("$.topGenres.length()").value(1));
+
+        mockMvc.perform(get("/api/statistics/authors/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books").value(6));
+    }
+
+    @Test
+    void shouldReturnNotFoundForUnknownAuthorTest() throws Exception {
+        mockMvc.perform(get("/api/statistics/authors/42"))
+                .andExpect(status().isNotFound());
+    }
+}
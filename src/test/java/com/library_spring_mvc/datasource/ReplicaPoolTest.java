@@ -0,0 +1,150 @@
+package com.library_spring_mvc.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ReplicaPoolTest {
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource first;
+
+    @Mock
+    private DataSource second;
+
+    @Mock
+    private Connection primaryConnection;
+
+    @Mock
+    private Connection firstConnection;
+
+    @Mock
+    private Connection secondConnection;
+
+    private ReadYourWrites readYourWrites;
+    private ReplicaPool replicaPool;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(first.getConnection()).thenReturn(firstConnection);
+        when(second.getConnection()).thenReturn(secondConnection);
+        when(firstConnection.isValid(anyInt())).thenReturn(true);
+        when(secondConnection.isValid(anyInt())).thenReturn(true);
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", first);
+        replicas.put("replica-1", second);
+        readYourWrites = new ReadYourWrites(Duration.ofMinutes(1));
+        replicaPool = new ReplicaPool(primary, replicas, readYourWrites, Duration.ofHours(1), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        replicaPool.close();
+    }
+
+    @Test
+    void shouldBalanceReadsOverReplicasTest() throws SQLException {
+        assertSame(firstConnection, replicaPool.getConnection());
+        assertSame(secondConnection, replicaPool.getConnection());
+        assertSame(firstConnection, replicaPool.getConnection());
+        verify(primary, never()).getConnection();
+    }
+
+    @Test
+    void shouldEjectFailingReplicaUntilItPassesHealthCheckTest() throws SQLException {
+        when(first.getConnection()).thenThrow(new SQLException("connection refused"));
+
+        assertSame(secondConnection, replicaPool.getConnection());
+        assertSame(secondConnection, replicaPool.getConnection());
+        assertSame(secondConnection, replicaPool.getConnection());
+        assertEquals(1, replicaPool.healthyReplicas());
+        verify(first, times(1)).getConnection();
+
+        doReturn(firstConnection).when(first).getConnection();
+        replicaPool.checkHealth();
+
+        assertEquals(2, replicaPool.healthyReplicas());
+    }
+
+    @Test
+    void shouldEjectReplicaWithInvalidConnectionTest() throws SQLException {
+        when(secondConnection.isValid(anyInt())).thenReturn(false);
+
+        replicaPool.checkHealth();
+
+        assertEquals(1, replicaPool.healthyReplicas());
+        assertSame(firstConnection, replicaPool.getConnection());
+        assertSame(firstConnection, replicaPool.getConnection());
+    }
+
+    @Test
+    void shouldFallBackToPrimaryWhenNoReplicaIsHealthyTest() throws SQLException {
+        when(first.getConnection()).thenThrow(new SQLException("connection refused"));
+        when(second.getConnection()).thenThrow(new SQLException("connection refused"));
+
+        assertSame(primaryConnection, replicaPool.getConnection());
+        assertSame(primaryConnection, replicaPool.getConnection());
+        assertEquals(0, replicaPool.healthyReplicas());
+    }
+
+    @Test
+    void shouldReadFromPrimaryAfterClientWroteTest() throws SQLException {
+        readYourWrites.begin("alice");
+        readYourWrites.onBookChanged(null);
+        assertSame(primaryConnection, replicaPool.getConnection());
+        readYourWrites.end();
+
+        readYourWrites.begin("bob");
+        assertSame(firstConnection, replicaPool.getConnection());
+        readYourWrites.end();
+
+        readYourWrites.begin("alice");
+        assertSame(primaryConnection, replicaPool.getConnection());
+        readYourWrites.end();
+    }
+
+    @Test
+    void shouldPassCredentialsToChosenDatabaseTest() throws SQLException {
+        when(first.getConnection("reporting", "secret")).thenReturn(firstConnection);
+        when(primary.getConnection("reporting", "secret")).thenReturn(primaryConnection);
+
+        assertSame(firstConnection, replicaPool.getConnection("reporting", "secret"));
+
+        readYourWrites.begin("alice");
+        readYourWrites.onBookChanged(null);
+        assertSame(primaryConnection, replicaPool.getConnection("reporting", "secret"));
+        readYourWrites.end();
+    }
+
+    @Test
+    void shouldNotEjectReplicaThatRefusesOtherCredentialsTest() throws SQLException {
+        when(first.getConnection("reporting", "secret")).thenThrow(new SQLFeatureNotSupportedException());
+
+        assertThrows(SQLFeatureNotSupportedException.class, () -> replicaPool.getConnection("reporting", "secret"));
+        assertEquals(2, replicaPool.healthyReplicas());
+    }
+}
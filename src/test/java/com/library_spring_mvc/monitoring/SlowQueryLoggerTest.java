@@ -0,0 +1,51 @@
+package com.library_spring_mvc.monitoring;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SlowQueryLoggerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void shouldCountOnlyStatementsAboveThresholdTest() {
+        SlowQueryLogger logger = new SlowQueryLogger(Duration.ofMillis(100), 1.0, meterRegistry);
+
+        logger.afterQuery(execution(20), List.of(new QueryInfo("select 1")));
+        logger.afterQuery(execution(100), List.of(new QueryInfo("select 2")));
+        logger.afterQuery(execution(450), List.of(new QueryInfo("select 3")));
+
+        assertEquals(2, meterRegistry.get("jdbc.statements.slow").counter().count());
+    }
+
+    @Test
+    void shouldCountEveryStatementEvenWhenLoggingIsSampledOutTest() {
+        SlowQueryLogger logger = new SlowQueryLogger(Duration.ofMillis(100), 0.0, meterRegistry);
+
+        for (int i = 0; i < 10; i++) {
+            logger.afterQuery(execution(150), List.of(new QueryInfo("select " + i)));
+        }
+
+        assertEquals(10, meterRegistry.get("jdbc.statements.slow").counter().count());
+    }
+
+    private static ExecutionInfo execution(long elapsedMillis) {
+        ExecutionInfo execution = new ExecutionInfo();
+        execution.setElapsedTime(elapsedMillis);
+        execution.setSuccess(true);
+        return execution;
+    }
+}
@@ -0,0 +1,177 @@
+package com.library_spring_mvc.repository;
+
+import com.library_spring_mvc.service.GenreDictionary;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs every lookup path of the repositories against a seeded catalogue, captures the SQL it sends
+ * and fails if the database plans any of those statements with a table scan. Listings of the whole
+ * catalogue, exports and aggregates scan by design and are not covered.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class QueryPlanTest {
+
+    private static final int AUTHORS = 200;
+    private static final int GENRES = 20;
+    private static final int BOOKS = 5_000;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private GenreDictionary genreDictionary;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<QueryInfo> captured = new ArrayList<>();
+    private volatile boolean capturing;
+
+    @BeforeEach
+    void setUp() {
+        seed();
+        genreDictionary.reload();
+        ((ProxyDataSource) dataSource).getProxyConfig().getQueryListener().addListener(new QueryExecutionListener() {
+            @Override
+            public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            }
+
+            @Override
+            public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+                if (capturing) {
+                    captured.addAll(queryInfoList);
+                }
+            }
+        });
+    }
+
+    @Test
+    void shouldPlanEveryLookupWithAnIndexTest() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Map<String, Runnable> lookups = new LinkedHashMap<>();
+        lookups.put("BookRepository.findById", () -> bookRepository.findById(42L));
+        lookups.put("BookRepository.findAllById", () -> bookRepository.findAllById(List.of(1L, 2L, 3L)));
+        lookups.put("BookRepository.findVersionById", () -> bookRepository.findVersionById(42L));
+        lookups.put("BookRepository.findByTitle", () -> bookRepository.findByTitle("Book 42"));
+        lookups.put("BookRepository.existsByTitle", () -> bookRepository.existsByTitle("Book 42"));
+        lookups.put("BookRepository.findAllByAuthor_Name",
+                () -> bookRepository.findAllByAuthor_Name("Author 7", PageRequest.of(1, 10)));
+        lookups.put("BookRepository.findSummariesByAuthor_Name",
+                () -> bookRepository.findSummariesByAuthor_Name("Author 7", PageRequest.of(1, 10)));
+        lookups.put("BookRepository.findPageByAuthorNameAfter",
+                () -> bookRepository.findPageByAuthorNameAfter("Author 7", 100L, Limit.of(11)));
+        lookups.put("BookRepository.findPageAfter", () -> bookRepository.findPageAfter(100L, Limit.of(21)));
+        lookups.put("BookRepository.findAllByGenre",
+                () -> bookRepository.findAllByGenre("genre 3", PageRequest.of(1, 10)));
+        lookups.put("BookRepository.findPageByGenreAfter",
+                () -> bookRepository.findPageByGenreAfter("genre 3", 100L, Limit.of(11)));
+        lookups.put("BookRepository.countByAuthor_Id", () -> bookRepository.countByAuthor_Id(7L));
+        lookups.put("BookRepository.findSnapshotsByAuthorAfter",
+                () -> bookRepository.findSnapshotsByAuthorAfter(7L, 100L, Limit.of(1000)));
+        lookups.put("BookRepository.deleteAllByIdIn", () -> transaction.executeWithoutResult(status -> {
+            bookRepository.deleteAllByIdIn(List.of(7L, 207L, 407L));
+            status.setRollbackOnly();
+        }));
+        lookups.put("AuthorRepository.findByName", () -> authorRepository.findByName("Author 7"));
+        lookups.put("AuthorRepository.existsByName", () -> authorRepository.existsByName("Author 7"));
+        lookups.put("Author.books", () -> transaction.executeWithoutResult(
+                status -> authorRepository.findById(7L).orElseThrow().getBooks().size()));
+        lookups.put("GenreDictionary.find", () -> genreDictionary.find("poetry"));
+
+        List<String> scans = new ArrayList<>();
+        for (Map.Entry<String, Runnable> lookup : lookups.entrySet()) {
+            captured.clear();
+            capturing = true;
+            try {
+                lookup.getValue().run();
+            } finally {
+                capturing = false;
+            }
+            assertFalse(captured.isEmpty(), lookup.getKey() + " ran no SQL");
+            for (QueryInfo query : captured) {
+                String plan = explain(query);
+                if (plan.contains(".tableScan")) {
+                    scans.add(lookup.getKey() + ":\n" + plan);
+                }
+            }
+        }
+        assertTrue(scans.isEmpty(), "Table scans in query plans:\n" + String.join("\n\n", scans));
+    }
+
+    private String explain(QueryInfo query) {
+        return jdbcTemplate.execute((Connection connection) -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + query.getQuery())) {
+                if (!query.getParametersList().isEmpty()) {
+                    for (ParameterSetOperation parameter : query.getParametersList().get(0)) {
+                        parameter.getMethod().invoke(statement, parameter.getArgs());
+                    }
+                }
+                try (ResultSet plan = statement.executeQuery()) {
+                    plan.next();
+                    return plan.getString(1);
+                }
+            } catch (ReflectiveOperationException ex) {
+                throw new IllegalStateException("Cannot replay the parameters of " + query.getQuery(), ex);
+            }
+        });
+    }
+
+    private void seed() {
+        List<Object[]> authors = new ArrayList<>();
+        for (int author = 1; author <= AUTHORS; author++) {
+            authors.add(new Object[]{author, "Author " + author});
+        }
+        jdbcTemplate.batchUpdate("insert into author (author_id, author_name) values (?, ?)", authors);
+
+        List<Object[]> genres = new ArrayList<>();
+        for (int genre = 1; genre <= GENRES; genre++) {
+            genres.add(new Object[]{genre, "genre " + genre});
+        }
+        jdbcTemplate.batchUpdate("insert into genres (genre_id, genre_name) values (?, ?)", genres);
+
+        List<Object[]> books = new ArrayList<>();
+        for (int id = 1; id <= BOOKS; id++) {
+            books.add(new Object[]{id, "Book " + id, 1 + id % GENRES, 1 + id % AUTHORS});
+        }
+        jdbcTemplate.batchUpdate("insert into books (id, title, genre_id, author_id) values (?, ?, ?, ?)", books);
+        jdbcTemplate.execute("analyze");
+    }
+}
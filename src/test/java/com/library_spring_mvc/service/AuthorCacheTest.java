@@ -0,0 +1,95 @@
+package com.library_spring_mvc.service;
+
+import com.library_spring_mvc.dto.CacheStatistics;
+import com.library_spring_mvc.entity.Author;
+import com.library_spring_mvc.repository.AuthorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuthorCacheTest {
+
+    @Mock
+    private AuthorRepository authorRepository;
+
+    private AuthorCache authorCache;
+
+    private Author author;
+
+    @BeforeEach
+    void setUp() {
+        authorCache = new AuthorCache(authorRepository, 100, Duration.ofMinutes(5));
+        author = new Author(1L, "John Doe", null, 0L);
+    }
+
+    @Test
+    void shouldLoadAuthorByIdOnlyOnceTest() {
+        when(authorRepository.findById(1L)).thenReturn(Optional.of(author));
+
+        assertEquals("John Doe", authorCache.findById(1L).orElseThrow().getName());
+        assertEquals("John Doe", authorCache.findById(1L).orElseThrow().getName());
+
+        verify(authorRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void shouldNotCacheMissingAuthorTest() {
+        when(authorRepository.findByName("Nobody")).thenReturn(Optional.empty());
+
+        assertTrue(authorCache.findByName("Nobody").isEmpty());
+        assertTrue(authorCache.findByName("Nobody").isEmpty());
+
+        verify(authorRepository, times(2)).findByName("Nobody");
+    }
+
+    @Test
+    void shouldReturnDetachedCopyTest() {
+        when(authorRepository.findById(1L)).thenReturn(Optional.of(author));
+
+        Author cached = authorCache.findById(1L).orElseThrow();
+
+        assertNotSame(author, cached);
+        assertNull(cached.getBooks());
+    }
+
+    @Test
+    void shouldEvictAuthorFromBothCachesTest() {
+        when(authorRepository.findById(1L)).thenReturn(Optional.of(author));
+        when(authorRepository.findByName("John Doe")).thenReturn(Optional.of(author));
+        authorCache.findById(1L);
+        authorCache.findByName("John Doe");
+
+        authorCache.evictById(1L);
+        authorCache.findById(1L);
+        authorCache.findByName("John Doe");
+
+        verify(authorRepository, times(2)).findById(1L);
+        verify(authorRepository, times(2)).findByName("John Doe");
+    }
+
+    @Test
+    void shouldReportHitsAndMissesTest() {
+        when(authorRepository.findById(1L)).thenReturn(Optional.of(author));
+        authorCache.findById(1L);
+        authorCache.findById(1L);
+        authorCache.findById(1L);
+
+        List<CacheStatistics> statistics = authorCache.statistics();
+        CacheStatistics byId = statistics.get(0);
+
+        assertEquals("authorsById", byId.getName());
+        assertEquals(2, byId.getHitCount());
+        assertEquals(1, byId.getMissCount());
+        assertEquals(1, byId.getSize());
+    }
+}
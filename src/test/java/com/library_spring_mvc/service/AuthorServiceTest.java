@@ -1,15 +1,29 @@
 package com.library_spring_mvc.service;
 
+import com.library_spring_mvc.datasource.ReadYourWrites;
 import com.library_spring_mvc.entity.Author;
+import com.library_spring_mvc.event.AuthorChangedEvent;
+import com.library_spring_mvc.event.BookChangedEvent;
+import com.library_spring_mvc.event.BookSnapshot;
+import com.library_spring_mvc.event.ChangeType;
 import com.library_spring_mvc.exception.AuthorNotFoundException;
 import com.library_spring_mvc.repository.AuthorRepository;
+import com.library_spring_mvc.repository.BookRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -21,13 +35,33 @@ class AuthorServiceTest {
     @Mock
     private AuthorRepository authorRepository;
 
-    @InjectMocks
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ObjectProvider<ReadYourWrites> readYourWrites;
+
     private AuthorService authorService;
 
     private Author author;
 
     @BeforeEach
     void setUp() {
+        authorService = new AuthorService(authorRepository,
+                bookRepository,
+                new AuthorCache(authorRepository, 100, Duration.ofMinutes(5)),
+                eventPublisher,
+                transactionManager,
+                2,
+                readYourWrites,
+                new SimpleMeterRegistry());
+
         author = new Author();
         author.setId(1L);
         author.setName("John Doe");
@@ -40,11 +74,11 @@ class AuthorServiceTest {
         authorService.addAuthor(author);
 
         verify(authorRepository, times(1)).save(author);
+        verify(eventPublisher).publishEvent(new AuthorChangedEvent(ChangeType.CREATED, 1L, "John Doe"));
     }
 
     @Test
     void shouldReturnAuthorByIdTest() {
-        when(authorRepository.existsById(1L)).thenReturn(true);
         when(authorRepository.findById(1L)).thenReturn(Optional.of(author));
 
         Optional<Author> result = authorService.findAuthorById(1L);
@@ -54,17 +88,28 @@ class AuthorServiceTest {
         verify(authorRepository, times(1)).findById(1L);
     }
 
+    @Test
+    void shouldReturnCachedAuthorByIdTest() {
+        when(authorRepository.findById(1L)).thenReturn(Optional.of(author));
+
+        authorService.findAuthorById(1L);
+        Optional<Author> result = authorService.findAuthorById(1L);
+
+        assertEquals("John Doe", result.get().getName());
+        verify(authorRepository, times(1)).findById(1L);
+        verify(authorRepository, never()).existsById(1L);
+    }
+
     @Test
     void shouldThrowExceptionWhenAuthorByIdIsNotFoundTest() {
-        when(authorRepository.existsById(1L)).thenReturn(false);
+        when(authorRepository.findById(1L)).thenReturn(Optional.empty());
 
         assertThrows(AuthorNotFoundException.class, () -> authorService.findAuthorById(1L));
-        verify(authorRepository, never()).findById(1L);
+        verify(authorRepository, never()).existsById(1L);
     }
 
     @Test
     void shouldReturnAllAuthorsTest() {
-        when(authorRepository.existsByName("John Doe")).thenReturn(true);
         when(authorRepository.findByName("John Doe")).thenReturn(Optional.of(author));
 
         Optional<Author> result = authorService.findAuthorByName("John Doe");
@@ -76,26 +121,92 @@ class AuthorServiceTest {
 
     @Test
     void shouldThrowExceptionWhenAuthorByNameIsNotFoundTest() {
-        when(authorRepository.existsByName("Nonexistent Author")).thenReturn(false);
+        when(authorRepository.findByName("Nonexistent Author")).thenReturn(Optional.empty());
 
         assertThrows(AuthorNotFoundException.class, () -> authorService.findAuthorByName("Nonexistent Author"));
-        verify(authorRepository, never()).findByName("Nonexistent Author");
+        verify(authorRepository, never()).existsByName("Nonexistent Author");
     }
 
     @Test
     void shouldDeleteAuthorByIdTest() {
-        when(authorRepository.existsById(1L)).thenReturn(true);
+        BookSnapshot book = new BookSnapshot(7L, "Some Book", "Drama", 1L, "John Doe");
+        when(authorRepository.findById(1L)).thenReturn(Optional.of(author));
+        when(bookRepository.findSnapshotsByAuthorAfter(1L, 0L, Limit.of(2))).thenReturn(List.of(book))
+                .thenReturn(List.of());
 
         authorService.deleteAuthorById(1L);
 
-        verify(authorRepository, times(1)).deleteById(1L);
+        verify(bookRepository).deleteAllByIdIn(List.of(7L));
+        verify(authorRepository).deleteAuthorById(1L);
+        verify(authorRepository, never()).delete(any(Author.class));
+        verify(eventPublisher).publishEvent(BookChangedEvent.deleted(book));
+        verify(eventPublisher).publishEvent(new AuthorChangedEvent(ChangeType.DELETED, 1L, "John Doe"));
+    }
+
+    @Test
+    void shouldDeleteBooksInChunksAndReportProgressTest() {
+        BookSnapshot first = new BookSnapshot(3L, "First", "Drama", 1L, "John Doe");
+        BookSnapshot second = new BookSnapshot(5L, "Second", "Drama", 1L, "John Doe");
+        BookSnapshot third = new BookSnapshot(8L, "Third", null, 1L, "John Doe");
+        when(authorRepository.findById(1L)).thenReturn(Optional.of(author));
+        when(bookRepository.findSnapshotsByAuthorAfter(1L, 0L, Limit.of(2)))
+                .thenReturn(List.of(first, second))
+                .thenReturn(List.of());
+        when(bookRepository.findSnapshotsByAuthorAfter(1L, 5L, Limit.of(2))).thenReturn(List.of(third));
+        List<Long> progress = new ArrayList<>();
+
+        authorService.deleteAuthorById(1L, progress::add);
+
+        assertEquals(List.of(2L, 1L), progress);
+        verify(bookRepository).deleteAllByIdIn(List.of(3L, 5L));
+        verify(bookRepository).deleteAllByIdIn(List.of(8L));
+        verify(transactionManager, times(3)).commit(any());
+        verify(eventPublisher, times(3)).publishEvent(any(BookChangedEvent.class));
+    }
+
+    @Test
+    void shouldDeleteEveryBookAddedDuringDeletionUnderAuthorLockTest() {
+        BookSnapshot first = new BookSnapshot(3L, "First", "Drama", 1L, "John Doe");
+        BookSnapshot second = new BookSnapshot(5L, "Second", "Drama", 1L, "John Doe");
+        BookSnapshot third = new BookSnapshot(8L, "Third", null, 1L, "John Doe");
+        when(authorRepository.findById(1L)).thenReturn(Optional.of(author));
+        when(bookRepository.findSnapshotsByAuthorAfter(1L, 0L, Limit.of(2)))
+                .thenReturn(List.of())
+                .thenReturn(List.of(first, second));
+        when(bookRepository.findSnapshotsByAuthorAfter(1L, 5L, Limit.of(2))).thenReturn(List.of(third));
+        List<Long> progress = new ArrayList<>();
+
+        authorService.deleteAuthorById(1L, progress::add);
+
+        assertEquals(List.of(2L, 1L), progress);
+        InOrder inOrder = inOrder(authorRepository, bookRepository);
+        inOrder.verify(authorRepository).lockById(1L);
+        inOrder.verify(bookRepository).deleteAllByIdIn(List.of(3L, 5L));
+        inOrder.verify(bookRepository).deleteAllByIdIn(List.of(8L));
+        inOrder.verify(authorRepository).deleteAuthorById(1L);
+        verify(transactionManager, times(2)).commit(any());
     }
 
     @Test
     void shouldThrowExceptionWhenDeleteAuthorByIdIsNotFoundTest() {
-        when(authorRepository.existsById(1L)).thenReturn(false);
+        when(authorRepository.findById(1L)).thenReturn(Optional.empty());
 
         assertThrows(AuthorNotFoundException.class, () -> authorService.deleteAuthorById(1L));
-        verify(authorRepository, never()).deleteById(1L);
+        verify(authorRepository, never()).deleteAuthorById(anyLong());
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void shouldEvictCachedAuthorOnDeleteTest() {
+        when(authorRepository.findById(1L))
+                .thenReturn(Optional.of(author))
+                .thenReturn(Optional.of(author))
+                .thenReturn(Optional.empty());
+
+        authorService.findAuthorById(1L);
+        authorService.deleteAuthorById(1L);
+
+        assertThrows(AuthorNotFoundException.class, () -> authorService.findAuthorById(1L));
+        verify(authorRepository, times(3)).findById(1L);
     }
 }
\ No newline at end of file
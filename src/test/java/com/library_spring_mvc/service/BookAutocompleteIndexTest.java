@@ -0,0 +1,136 @@
+package com.library_spring_mvc.service;
+
+import com.library_spring_mvc.dto.AuthorName;
+import com.library_spring_mvc.dto.AutocompleteSuggestion;
+import com.library_spring_mvc.dto.BookExportRow;
+import com.library_spring_mvc.event.AuthorChangedEvent;
+import com.library_spring_mvc.event.BookChangedEvent;
+import com.library_spring_mvc.event.BookSnapshot;
+import com.library_spring_mvc.event.ChangeType;
+import com.library_spring_mvc.repository.AuthorRepository;
+import com.library_spring_mvc.repository.BookRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookAutocompleteIndexTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private AuthorRepository authorRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private BookAutocompleteIndex autocompleteIndex;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        autocompleteIndex = new BookAutocompleteIndex(bookRepository, authorRepository, transactionManager,
+                meterRegistry);
+        autocompleteIndex.onAuthorChanged(new AuthorChangedEvent(ChangeType.CREATED, 1L, "Lev Tolstoy"));
+        autocompleteIndex.onAuthorChanged(new AuthorChangedEvent(ChangeType.CREATED, 2L, "Leo Perutz"));
+        add(1L, "War and Peace", 1L, "Lev Tolstoy");
+        add(2L, "Anna Karenina", 1L, "Lev Tolstoy");
+        add(3L, "Leopoldstadt", 2L, "Leo Perutz");
+    }
+
+    @Test
+    void shouldCompleteTitlesAndAuthorsInOrderTest() {
+        List<AutocompleteSuggestion> suggestions = autocompleteIndex.complete("LE", 10);
+
+        assertEquals(List.of("Leo Perutz", "Leopoldstadt", "Lev Tolstoy"), texts(suggestions));
+        assertEquals(BookAutocompleteIndex.AUTHOR, suggestions.get(0).getType());
+        assertEquals(BookAutocompleteIndex.TITLE, suggestions.get(1).getType());
+        assertEquals(2, suggestions.get(2).getBooks());
+    }
+
+    @Test
+    void shouldHonourLimitTest() {
+        assertEquals(List.of("Leo Perutz"), texts(autocompleteIndex.complete("le", 1)));
+    }
+
+    @Test
+    void shouldReturnNothingForBlankPrefixTest() {
+        assertTrue(autocompleteIndex.complete(" ", 10).isEmpty());
+    }
+
+    @Test
+    void shouldFollowRenamedAndDeletedBooksTest() {
+        autocompleteIndex.onBookChanged(BookChangedEvent.updated(
+                new BookSnapshot(1L, "War and Peace", "history", 1L, "Lev Tolstoy"),
+                new BookSnapshot(1L, "Resurrection", "history", 1L, "Lev Tolstoy")));
+        autocompleteIndex.onBookChanged(BookChangedEvent.deleted(
+                new BookSnapshot(3L, "Leopoldstadt", "novel", 2L, "Leo Perutz")));
+
+        assertTrue(autocompleteIndex.complete("war", 10).isEmpty());
+        assertEquals(List.of("Resurrection"), texts(autocompleteIndex.complete("res", 10)));
+        assertEquals(List.of("Leo Perutz", "Lev Tolstoy"), texts(autocompleteIndex.complete("le", 10)));
+        assertEquals(0, autocompleteIndex.complete("leo", 10).get(0).getBooks());
+    }
+
+    @Test
+    void shouldDropDeletedAuthorTest() {
+        autocompleteIndex.onAuthorChanged(new AuthorChangedEvent(ChangeType.DELETED, 2L, "Leo Perutz"));
+
+        assertEquals(List.of("Leopoldstadt", "Lev Tolstoy"), texts(autocompleteIndex.complete("le", 10)));
+    }
+
+    @Test
+    void shouldNotCountChangesTwiceWhenReplayingThemAfterRebuildTest() {
+        when(authorRepository.streamAllNames()).thenReturn(Stream.of(new AuthorName(1L, "Lev Tolstoy")));
+        when(bookRepository.streamAllForExport()).thenAnswer(invocation -> {
+            // committed while the rebuild runs, early enough for its snapshot to see them
+            add(4L, "Resurrection", 1L, "Lev Tolstoy");
+            autocompleteIndex.onBookChanged(BookChangedEvent.deleted(
+                    new BookSnapshot(2L, "Anna Karenina", "novel", 1L, "Lev Tolstoy")));
+            return Stream.of(new BookExportRow(1L, "War and Peace", "history", 1L, "Lev Tolstoy"),
+                    new BookExportRow(4L, "Resurrection", "novel", 1L, "Lev Tolstoy"));
+        });
+
+        autocompleteIndex.rebuild();
+
+        assertEquals(1, autocompleteIndex.complete("res", 10).get(0).getBooks());
+        assertEquals(2, autocompleteIndex.complete("lev", 10).get(0).getBooks());
+        assertTrue(autocompleteIndex.complete("anna", 10).isEmpty());
+
+        autocompleteIndex.onBookChanged(BookChangedEvent.deleted(
+                new BookSnapshot(4L, "Resurrection", "novel", 1L, "Lev Tolstoy")));
+
+        assertTrue(autocompleteIndex.complete("res", 10).isEmpty());
+        assertEquals(1, autocompleteIndex.complete("lev", 10).get(0).getBooks());
+    }
+
+    @Test
+    void shouldReportFootprintThroughMetricsTest() {
+        assertEquals(3, meterRegistry.get("autocomplete.entries").tag("type", "title").gauge().value());
+        assertEquals(2, meterRegistry.get("autocomplete.entries").tag("type", "author").gauge().value());
+        assertEquals(autocompleteIndex.estimatedMemoryBytes(),
+                meterRegistry.get("autocomplete.memory").gauge().value());
+        assertTrue(autocompleteIndex.estimatedMemoryBytes() > 0);
+    }
+
+    private void add(long id, String title, long authorId, String authorName) {
+        autocompleteIndex.onBookChanged(BookChangedEvent.created(
+                new BookSnapshot(id, title, "novel", authorId, authorName)));
+    }
+
+    private static List<String> texts(List<AutocompleteSuggestion> suggestions) {
+        return suggestions.stream().map(AutocompleteSuggestion::getText).toList();
+    }
+}
@@ -0,0 +1,114 @@
+package com.library_spring_mvc.service;
+
+import com.library_spring_mvc.event.BookChangedEvent;
+import com.library_spring_mvc.event.BookSnapshot;
+import com.library_spring_mvc.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookSearchIndexTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BookSearchIndex bookSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        bookSearchIndex = new BookSearchIndex(bookRepository, transactionManager);
+        index(1L, "War and Peace", "history", "Lev Tolstoy");
+        index(2L, "Peace Talks", "politics", "Anna Peace");
+        index(3L, "The Childhood", "history", "Lev Tolstoy");
+    }
+
+    @Test
+    void shouldRankTitleMatchesAboveAuthorMatchesTest() {
+        BookSearchIndex.SearchHits hits = bookSearchIndex.search("peace", 0, 10);
+
+        assertEquals(2, hits.getTotal());
+        assertEquals(List.of(2L, 1L), hits.getIds());
+    }
+
+    @Test
+    void shouldRequireEveryQueryTokenTest() {
+        BookSearchIndex.SearchHits hits = bookSearchIndex.search("tolstoy history childhood", 0, 10);
+
+        assertEquals(List.of(3L), hits.getIds());
+    }
+
+    @Test
+    void shouldPageThroughHitsTest() {
+        BookSearchIndex.SearchHits hits = bookSearchIndex.search("Tolstoy", 1, 1);
+
+        assertEquals(2, hits.getTotal());
+        assertEquals(List.of(3L), hits.getIds());
+    }
+
+    @Test
+    void shouldReindexUpdatedBookTest() {
+        bookSearchIndex.onBookChanged(BookChangedEvent.updated(
+                new BookSnapshot(3L, "The Childhood", "history", 1L, "Lev Tolstoy"),
+                new BookSnapshot(3L, "Boyhood", "history", 1L, "Lev Tolstoy")));
+
+        assertEquals(0, bookSearchIndex.search("childhood", 0, 10).getTotal());
+        assertEquals(List.of(3L), bookSearchIndex.search("boyhood", 0, 10).getIds());
+    }
+
+    @Test
+    void shouldUnindexDeletedBookTest() {
+        bookSearchIndex.onBookChanged(BookChangedEvent.deleted(
+                new BookSnapshot(1L, "War and Peace", "history", 1L, "Lev Tolstoy")));
+
+        assertEquals(List.of(2L), bookSearchIndex.search("peace", 0, 10).getIds());
+        assertEquals(2, bookSearchIndex.size());
+    }
+
+    @Test
+    void shouldRankAndPageManyHitsAfterRemovalsTest() {
+        List<Long> sagas = new ArrayList<>();
+        for (long id = 10; id < 400; id++) {
+            index(id, "Volume " + id, id % 3 == 0 ? "saga" : "poem", "Anna Peace");
+        }
+        index(1000L, "Saga Volume", "poem", "Anna Peace");
+        index(1001L, "Saga Volume", "poem", "Anna Peace");
+        for (long id = 10; id < 400; id++) {
+            if (id % 2 == 0) {
+                bookSearchIndex.onBookChanged(BookChangedEvent.deleted(
+                        new BookSnapshot(id, "Volume " + id, id % 3 == 0 ? "saga" : "poem", 1L, "Anna Peace")));
+            } else if (id % 3 == 0) {
+                sagas.add(id);
+            }
+        }
+
+        BookSearchIndex.SearchHits first = bookSearchIndex.search("volume saga", 0, 5);
+        BookSearchIndex.SearchHits second = bookSearchIndex.search("volume saga", 5, 5);
+
+        assertEquals(3 + 195 + 2, bookSearchIndex.size());
+        assertEquals(sagas.size() + 2, first.getTotal());
+        assertEquals(List.of(1000L, 1001L, sagas.get(0), sagas.get(1), sagas.get(2)), first.getIds());
+        assertEquals(sagas.subList(3, 8), second.getIds());
+        assertEquals(List.of(), bookSearchIndex.search("volume saga", first.getTotal(), 5).getIds());
+    }
+
+    @Test
+    void shouldReturnNoHitsForBlankQueryTest() {
+        assertEquals(0, bookSearchIndex.search("  ", 0, 10).getTotal());
+    }
+
+    private void index(Long id, String title, String genre, String authorName) {
+        bookSearchIndex.onBookChanged(BookChangedEvent.created(new BookSnapshot(id, title, genre, 1L, authorName)));
+    }
+}
@@ -1,25 +1,41 @@
 package com.library_spring_mvc.service;
 
+import com.library_spring_mvc.datasource.ReadYourWrites;
+import com.library_spring_mvc.dto.BatchGetResponse;
 import com.library_spring_mvc.dto.BookDTO;
+import com.library_spring_mvc.dto.BookSummary;
+import com.library_spring_mvc.dto.CursorPage;
 import com.library_spring_mvc.entity.Author;
 import com.library_spring_mvc.entity.Book;
+import com.library_spring_mvc.event.BookChangedEvent;
+import com.library_spring_mvc.event.ChangeType;
 import com.library_spring_mvc.exception.AuthorNotFoundException;
+import com.library_spring_mvc.exception.BatchSizeExceededException;
 import com.library_spring_mvc.exception.BookNotFoundException;
+import com.library_spring_mvc.exception.InvalidCursorException;
 import com.library_spring_mvc.repository.AuthorRepository;
 import com.library_spring_mvc.repository.BookRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -33,7 +49,21 @@ class BookServiceTest {
     @Mock
     private AuthorRepository authorRepository;
 
-    @InjectMocks
+    @Mock
+    private BookSearchIndex bookSearchIndex;
+
+    @Mock
+    private BookAutocompleteIndex bookAutocompleteIndex;
+
+    @Mock
+    private GenreDictionary genreDictionary;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ObjectProvider<ReadYourWrites> readYourWrites;
+
     private BookService bookService;
 
     private Author author;
@@ -42,11 +72,20 @@ class BookServiceTest {
 
     @BeforeEach
     void setUp() {
+        bookService = new BookService(bookRepository,
+                new AuthorCache(authorRepository, 100, Duration.ofMinutes(5)),
+                bookSearchIndex,
+                bookAutocompleteIndex,
+                genreDictionary,
+                eventPublisher,
+                readYourWrites,
+                new SimpleMeterRegistry());
+
         author = new Author();
         author.setId(1L);
         author.setName("John Doe");
 
-        book = new Book(1L, "Test Book", author, "Fiction");
+        book = new Book(1L, "Test Book", author, "Fiction", 0L);
 
         bookDTO = new BookDTO();
         bookDTO.setTitle("Updated Book");
@@ -68,9 +107,95 @@ class BookServiceTest {
         verify(bookRepository, times(1)).findAll(pageable);
     }
 
+    @Test
+    void shouldReturnBooksOfGenreOrderedByIdTest() {
+        when(genreDictionary.find("Fiction")).thenReturn(Optional.of(3));
+        when(bookRepository.findAllByGenre("Fiction", PageRequest.of(0, 5, Sort.by("id"))))
+                .thenReturn(new PageImpl<>(List.of(book)));
+
+        Page<Book> result = bookService.findAllByGenre("Fiction", PageRequest.of(0, 5));
+
+        assertEquals(List.of(book), result.getContent());
+    }
+
+    @Test
+    void shouldReturnBookSummariesOfGenreOrderedByIdTest() {
+        BookSummary summary = mock(BookSummary.class);
+        when(genreDictionary.find("Fiction")).thenReturn(Optional.of(3));
+        when(bookRepository.findSummariesByGenre("Fiction", PageRequest.of(0, 5, Sort.by("id"))))
+                .thenReturn(new PageImpl<>(List.of(summary)));
+
+        Page<BookSummary> result = bookService.findAllSummariesByGenre("Fiction", PageRequest.of(0, 5));
+
+        assertEquals(List.of(summary), result.getContent());
+    }
+
+    @Test
+    void shouldReturnEmptyPageForUnknownGenreWithoutQueryingBooksTest() {
+        when(genreDictionary.find("Poetry")).thenReturn(Optional.empty());
+
+        assertTrue(bookService.findAllByGenre("Poetry", PageRequest.of(0, 5)).isEmpty());
+        assertTrue(bookService.findAllByGenreAfter("Poetry", "", 5).getContent().isEmpty());
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void shouldResolveBatchInChunksKeepingRequestOrderTest() {
+        List<Long> ids = LongStream.rangeClosed(1, 600).boxed().toList();
+        Book second = new Book(2L, "Second Book", author, "Fiction", 0L);
+        when(bookRepository.findAllById(ids.subList(0, 500))).thenReturn(List.of(second, book));
+        when(bookRepository.findAllById(ids.subList(500, 600))).thenReturn(List.of());
+
+        BatchGetResponse<Book> result = bookService.findAllById(ids);
+
+        assertEquals(List.of(book, second), result.getFound());
+        assertEquals(598, result.getMissing().size());
+        assertEquals(3L, result.getMissing().get(0));
+    }
+
+    @Test
+    void shouldRejectOversizedBatchTest() {
+        List<Long> ids = LongStream.rangeClosed(1, 1001).boxed().toList();
+
+        assertThrows(BatchSizeExceededException.class, () -> bookService.findAllById(ids));
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void shouldReturnFirstCursorPageWithNextCursorTest() {
+        Book second = new Book(2L, "Second Book", author, "Fiction", 0L);
+        when(bookRepository.findPageAfter(0L, Limit.of(2))).thenReturn(List.of(book, second));
+
+        CursorPage<Book> result = bookService.findAllAfter("", 1);
+
+        assertEquals(1, result.getSize());
+        assertEquals(List.of(book), result.getContent());
+        assertNotNull(result.getNextCursor());
+
+        when(bookRepository.findPageAfter(1L, Limit.of(2))).thenReturn(List.of(second));
+
+        CursorPage<Book> next = bookService.findAllAfter(result.getNextCursor(), 1);
+
+        assertEquals(List.of(second), next.getContent());
+        assertNull(next.getNextCursor());
+    }
+
+    @Test
+    void shouldThrowExceptionWhenCursorIsMalformedTest() {
+        assertThrows(InvalidCursorException.class, () -> bookService.findAllAfter("%%%", 10));
+        verify(bookRepository, never()).findPageAfter(anyLong(), any(Limit.class));
+    }
+
+    @Test
+    void shouldThrowExceptionWhenAuthorNotFoundOnCursorPageTest() {
+        when(bookRepository.findPageByAuthorNameAfter("Nobody", 0L, Limit.of(11))).thenReturn(List.of());
+        when(authorRepository.findByName("Nobody")).thenReturn(Optional.empty());
+
+        assertThrows(AuthorNotFoundException.class, () -> bookService.findAllByAuthorAfter("Nobody", null, 10));
+    }
+
     @Test
     void shouldReturnBookByIdTest() {
-        when(bookRepository.existsById(1L)).thenReturn(true);
         when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
 
         Optional<Book> result = bookService.findById(1L);
@@ -78,19 +203,19 @@ class BookServiceTest {
         assertTrue(result.isPresent());
         assertEquals("Test Book", result.get().getTitle());
         verify(bookRepository, times(1)).findById(1L);
+        verify(bookRepository, never()).existsById(1L);
     }
 
     @Test
     void shouldThrowExceptionWhenBookNotFoundTest() {
-        when(bookRepository.existsById(1L)).thenReturn(false);
+        when(bookRepository.findById(1L)).thenReturn(Optional.empty());
 
         assertThrows(BookNotFoundException.class, () -> bookService.findById(1L));
-        verify(bookRepository, never()).findById(1L);
+        verify(bookRepository, never()).existsById(1L);
     }
 
     @Test
     void shouldReturnBookByTitleTest() {
-        when(bookRepository.existsByTitle("Test Book")).thenReturn(true);
         when(bookRepository.findByTitle("Test Book")).thenReturn(Optional.of(book));
 
         Optional<Book> result = bookService.findByTitle("Test Book");
@@ -98,14 +223,15 @@ class BookServiceTest {
         assertTrue(result.isPresent());
         assertEquals("Test Book", result.get().getTitle());
         verify(bookRepository, times(1)).findByTitle("Test Book");
+        verify(bookRepository, never()).existsByTitle("Test Book");
     }
 
     @Test
     void shouldThrowExceptionWhenBookByTitleNotFoundTest() {
-        when(bookRepository.existsByTitle("Nonexistent")).thenReturn(false);
+        when(bookRepository.findByTitle("Nonexistent")).thenReturn(Optional.empty());
 
         assertThrows(BookNotFoundException.class, () -> bookService.findByTitle("Nonexistent"));
-        verify(bookRepository, never()).findByTitle("Nonexistent");
+        verify(bookRepository, never()).existsByTitle("Nonexistent");
     }
 
     @Test
@@ -113,7 +239,7 @@ class BookServiceTest {
         Pageable pageable = PageRequest.of(0, 5);
         Page<Book> bookPage = new PageImpl<>(List.of(book));
 
-        when(authorRepository.existsByName("John Doe")).thenReturn(true);
+        when(authorRepository.findByName("John Doe")).thenReturn(Optional.of(author));
         when(bookRepository.findAllByAuthor_Name("John Doe", pageable)).thenReturn(bookPage);
 
         Page<Book> result = bookService.findAllByAuthor("John Doe", pageable);
@@ -127,12 +253,32 @@ class BookServiceTest {
     void shouldThrowExceptionWhenAuthorNotFoundTest() {
         Pageable pageable = PageRequest.of(0, 5);
 
-        when(authorRepository.existsByName("Any Book")).thenReturn(false);
+        when(authorRepository.findByName("Any Book")).thenReturn(Optional.empty());
 
         assertThrows(AuthorNotFoundException.class, () -> bookService.findAllByAuthor("Any Book", pageable));
         verify(bookRepository, never()).findAllByAuthor_Name("Any Book", pageable);
     }
 
+    @Test
+    void shouldSplitRequestedFieldsTest() {
+        Pageable pageable = PageRequest.of(0, 5);
+        Page<Map<String, Object>> rows = new PageImpl<>(List.of(Map.of("id", 1L, "title", "Test Book")));
+        when(bookRepository.findAllWithFields(List.of("id", "title"), null, null, pageable)).thenReturn(rows);
+
+        Page<Map<String, Object>> result = bookService.findAllWithFields("id,title", pageable);
+
+        assertEquals("Test Book", result.getContent().get(0).get("title"));
+    }
+
+    @Test
+    void shouldThrowExceptionWhenAuthorNotFoundForSummariesTest() {
+        Pageable pageable = PageRequest.of(0, 5);
+        when(authorRepository.findByName("Nobody")).thenReturn(Optional.empty());
+
+        assertThrows(AuthorNotFoundException.class, () -> bookService.findAllSummariesByAuthor("Nobody", pageable));
+        verify(bookRepository, never()).findSummariesByAuthor_Name("Nobody", pageable);
+    }
+
     @Test
     void shouldSaveBookTest() {
         when(authorRepository.findById(1L)).thenReturn(Optional.of(author));
@@ -145,6 +291,31 @@ class BookServiceTest {
         verify(bookRepository, times(1)).save(any(Book.class));
     }
 
+    @Test
+    void shouldPublishCreatedEventOnSaveTest() {
+        when(authorRepository.findById(1L)).thenReturn(Optional.of(author));
+        when(bookRepository.save(any(Book.class))).thenReturn(book);
+
+        bookService.save(bookDTO);
+
+        ArgumentCaptor<BookChangedEvent> event = ArgumentCaptor.forClass(BookChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(ChangeType.CREATED, event.getValue().getType());
+        assertEquals(1L, event.getValue().getBookId());
+    }
+
+    @Test
+    void shouldResolveAuthorFromCacheOnRepeatedSaveTest() {
+        when(authorRepository.findById(1L)).thenReturn(Optional.of(author));
+        when(bookRepository.save(any(Book.class))).thenReturn(book);
+
+        bookService.save(bookDTO);
+        bookService.save(bookDTO);
+
+        verify(authorRepository, times(1)).findById(1L);
+        verify(bookRepository, times(2)).save(any(Book.class));
+    }
+
     @Test
     void shouldThrowExceptionWhenAuthorNotFoundOnSaveTest() {
         when(authorRepository.findById(1L)).thenReturn(Optional.empty());
@@ -165,6 +336,11 @@ class BookServiceTest {
         assertEquals("Updated Book", book.getTitle());
         assertEquals("Horror", book.getGenre());
         verify(bookRepository, times(1)).save(book);
+
+        ArgumentCaptor<BookChangedEvent> event = ArgumentCaptor.forClass(BookChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals("Test Book", event.getValue().getBefore().getTitle());
+        assertEquals("Updated Book", event.getValue().getAfter().getTitle());
     }
 
     @Test
@@ -187,18 +363,32 @@ class BookServiceTest {
 
     @Test
     void shouldDeleteBookTest() {
-        when(bookRepository.existsById(1L)).thenReturn(true);
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
 
         bookService.delete(1L);
 
-        verify(bookRepository, times(1)).deleteById(1L);
+        verify(bookRepository, times(1)).delete(book);
+        verify(eventPublisher).publishEvent(any(BookChangedEvent.class));
+    }
+
+    @Test
+    void shouldReturnSearchHitsInRankedOrderTest() {
+        Book second = new Book(2L, "Second Book", author, "Fiction", 0L);
+        Pageable pageable = PageRequest.of(0, 10);
+        when(bookSearchIndex.search("book", 0, 10)).thenReturn(new BookSearchIndex.SearchHits(2, List.of(2L, 1L)));
+        when(bookRepository.findAllById(List.of(2L, 1L))).thenReturn(List.of(book, second));
+
+        Page<Book> result = bookService.search("book", pageable);
+
+        assertEquals(List.of(second, book), result.getContent());
+        assertEquals(2, result.getTotalElements());
     }
 
     @Test
     void shouldThrowExceptionWhenBookNotFoundOnDeleteTest() {
-        when(bookRepository.existsById(1L)).thenReturn(false);
+        when(bookRepository.findById(1L)).thenReturn(Optional.empty());
 
         assertThrows(BookNotFoundException.class, () -> bookService.delete(1L));
-        verify(bookRepository, never()).deleteById(1L);
+        verify(bookRepository, never()).delete(any(Book.class));
     }
 }
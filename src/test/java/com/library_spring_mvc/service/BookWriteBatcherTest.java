@@ -0,0 +1,216 @@
+package com.library_spring_mvc.service;
+
+import com.library_spring_mvc.datasource.ReadYourWrites;
+import com.library_spring_mvc.dto.BookDTO;
+import com.library_spring_mvc.entity.Author;
+import com.library_spring_mvc.entity.Book;
+import com.library_spring_mvc.exception.AuthorNotFoundException;
+import com.library_spring_mvc.exception.GroupCommitUnavailableException;
+import com.library_spring_mvc.repository.AuthorRepository;
+import com.library_spring_mvc.repository.BookRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookWriteBatcherTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private AuthorRepository authorRepository;
+
+    @Mock
+    private GenreDictionary genreDictionary;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ObjectProvider<ReadYourWrites> readYourWrites;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private final AtomicLong ids = new AtomicLong();
+    private BookWriteBatcher bookWriteBatcher;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(authorRepository.findAllById(anyIterable()))
+                .thenReturn(List.of(new Author(1L, "Lev Tolstoy", null, 0L)));
+        lenient().when(bookRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            Iterable<Book> saved = invocation.getArgument(0);
+            List<Book> books = new ArrayList<>();
+            for (Book book : saved) {
+                if (book.getTitle() == null) {
+                    throw new DataIntegrityViolationException("title must not be null");
+                }
+                book.setId(ids.incrementAndGet());
+                books.add(book);
+            }
+            return books;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        if (bookWriteBatcher != null) {
+            bookWriteBatcher.shutdown();
+        }
+    }
+
+    @Test
+    void shouldCommitConcurrentSavesTogetherTest() throws Exception {
+        bookWriteBatcher = batcher(4);
+
+        List<Future<Book>> results = saveConcurrently(book("War and Peace", 1L), book("Fillipok", 1L),
+                book("The sunday", 1L), book("The childhood", 1L));
+
+        List<String> titles = new ArrayList<>();
+        List<Long> savedIds = new ArrayList<>();
+        for (Future<Book> result : results) {
+            Book saved = result.get(5, TimeUnit.SECONDS);
+            titles.add(saved.getTitle());
+            savedIds.add(saved.getId());
+        }
+        assertEquals(List.of("War and Peace", "Fillipok", "The sunday", "The childhood"), titles);
+        assertEquals(4, savedIds.stream().distinct().count());
+        verify(bookRepository, times(1)).saveAll(anyIterable());
+        verify(transactionManager, times(1)).commit(any());
+        verify(eventPublisher, times(4)).publishEvent(any(Object.class));
+        assertEquals(1, meterRegistry.get("books.group-commit.batch.size").summary().count());
+        assertEquals(4, meterRegistry.get("books.group-commit.batch.size").summary().totalAmount());
+        assertEquals(4, meterRegistry.get("books.group-commit.queue.wait").timer().count());
+    }
+
+    @Test
+    void shouldFailOnlyTheSaveWithMissingAuthorTest() throws Exception {
+        bookWriteBatcher = batcher(2);
+
+        List<Future<Book>> results = saveConcurrently(book("War and Peace", 1L), book("Unknown", 99L));
+
+        assertEquals("War and Peace", results.get(0).get(5, TimeUnit.SECONDS).getTitle());
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> results.get(1).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(AuthorNotFoundException.class, ex.getCause());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void shouldRetryRejectedBatchBookByBookTest() throws Exception {
+        bookWriteBatcher = batcher(2);
+
+        List<Future<Book>> results = saveConcurrently(book("War and Peace", 1L), book(null, 1L));
+
+        assertEquals("War and Peace", results.get(0).get(5, TimeUnit.SECONDS).getTitle());
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> results.get(1).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DataIntegrityViolationException.class, ex.getCause());
+        verify(bookRepository, times(3)).saveAll(anyIterable());
+        verify(transactionManager, times(1)).commit(any());
+        verify(transactionManager, times(2)).rollback(any());
+    }
+
+    @Test
+    void shouldKeepWritingAfterBatchFailsWithErrorTest() throws Exception {
+        bookWriteBatcher = batcher(1);
+        doThrow(new NoClassDefFoundError("simulated")).doNothing().when(eventPublisher).publishEvent(any(Object.class));
+
+        ExecutionException ex = assertThrows(ExecutionException.class,
+                () -> saveConcurrently(book("War and Peace", 1L)).get(0).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(NoClassDefFoundError.class, ex.getCause().getCause());
+
+        assertEquals("Fillipok", saveConcurrently(book("Fillipok", 1L)).get(0).get(5, TimeUnit.SECONDS).getTitle());
+    }
+
+    @Test
+    void shouldWithdrawSaveThatWaitedTooLongTest() {
+        bookWriteBatcher = batcher(2, Duration.ofMillis(100));
+
+        GroupCommitUnavailableException ex = assertThrows(GroupCommitUnavailableException.class,
+                () -> bookWriteBatcher.save(book("War and Peace", 1L)));
+        assertEquals("Book was not saved in time, retry later", ex.getMessage());
+        verify(bookRepository, never()).saveAll(anyIterable());
+
+        // fills the batch that still holds the withdrawn save, which is left out of the commit
+        assertEquals(1L, bookWriteBatcher.save(book("Fillipok", 1L)).getId());
+        verify(eventPublisher, times(1)).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void shouldFailQueuedAndRefuseNewSavesOnShutdownTest() throws Exception {
+        bookWriteBatcher = batcher(2);
+        Future<Book> queued = saveConcurrently(book("War and Peace", 1L)).get(0);
+        Thread.sleep(100);
+
+        bookWriteBatcher.shutdown();
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(GroupCommitUnavailableException.class, ex.getCause());
+        assertThrows(GroupCommitUnavailableException.class, () -> bookWriteBatcher.save(book("Fillipok", 1L)));
+    }
+
+    @Test
+    void shouldRejectSavesWhenDisabledTest() {
+        bookWriteBatcher = new BookWriteBatcher(bookRepository,
+                new AuthorCache(authorRepository, 100, Duration.ofMinutes(5)), genreDictionary, eventPublisher, readYourWrites,
+                transactionManager, meterRegistry, false, 10, Duration.ofMillis(5), 100, Duration.ofSeconds(5));
+
+        assertFalse(bookWriteBatcher.isEnabled());
+        assertThrows(IllegalStateException.class, () -> bookWriteBatcher.save(book("War and Peace", 1L)));
+    }
+
+    // a linger far longer than the test makes every batch wait until it is full
+    private BookWriteBatcher batcher(int maxBatchSize) {
+        return batcher(maxBatchSize, Duration.ofSeconds(30));
+    }
+
+    private BookWriteBatcher batcher(int maxBatchSize, Duration saveTimeout) {
+        return new BookWriteBatcher(bookRepository,
+                new AuthorCache(authorRepository, 100, Duration.ofMinutes(5)), genreDictionary, eventPublisher, readYourWrites,
+                transactionManager, meterRegistry, true, maxBatchSize, Duration.ofMinutes(1), 100, saveTimeout);
+    }
+
+    private List<Future<Book>> saveConcurrently(BookDTO... books) {
+        List<Future<Book>> results = new ArrayList<>();
+        for (BookDTO book : books) {
+            results.add(callers.submit(() -> bookWriteBatcher.save(book)));
+        }
+        return results;
+    }
+
+    private static BookDTO book(String title, Long authorId) {
+        BookDTO book = new BookDTO();
+        book.setTitle(title);
+        book.setGenre("novel");
+        book.setAuthorId(authorId);
+        return book;
+    }
+}
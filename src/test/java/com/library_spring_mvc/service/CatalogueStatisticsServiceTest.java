@@ -0,0 +1,144 @@
+package com.library_spring_mvc.service;
+
+import com.library_spring_mvc.dto.AuthorBookCount;
+import com.library_spring_mvc.dto.CatalogueStatistics;
+import com.library_spring_mvc.dto.GenreBookCount;
+import com.library_spring_mvc.event.AuthorChangedEvent;
+import com.library_spring_mvc.event.BookChangedEvent;
+import com.library_spring_mvc.event.BookSnapshot;
+import com.library_spring_mvc.event.ChangeType;
+import com.library_spring_mvc.exception.AuthorNotFoundException;
+import com.library_spring_mvc.repository.AuthorRepository;
+import com.library_spring_mvc.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogueStatisticsServiceTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private AuthorRepository authorRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    private CatalogueStatisticsService statisticsService;
+
+    @BeforeEach
+    void setUp() {
+        statisticsService = new CatalogueStatisticsService(bookRepository, authorRepository, transactionManager,
+                taskScheduler);
+        statisticsService.onAuthorChanged(new AuthorChangedEvent(ChangeType.CREATED, 1L, "Lev Tolstoy"));
+        statisticsService.onAuthorChanged(new AuthorChangedEvent(ChangeType.CREATED, 2L, "Anton Chekhov"));
+        create(1L, "history", 1L, "Lev Tolstoy");
+        create(2L, "history", 1L, "Lev Tolstoy");
+        create(3L, "drama", 2L, "Anton Chekhov");
+    }
+
+    @Test
+    void shouldCountBooksPerAuthorAndGenreTest() {
+        CatalogueStatistics statistics = statisticsService.statistics(10);
+
+        assertEquals(3, statistics.getTotalBooks());
+        assertEquals(2, statistics.getTotalAuthors());
+        assertEquals(Map.of("drama", 1L, "history", 2L), statistics.getBooksPerGenre());
+        assertEquals(List.of(new AuthorBookCount(1L, "Lev Tolstoy", 2), new AuthorBookCount(2L, "Anton Chekhov", 1)),
+                statistics.getTopAuthors());
+        assertEquals(new GenreBookCount("history", 2), statistics.getTopGenres().get(0));
+    }
+
+    @Test
+    void shouldMoveCountsOnUpdateAndDeleteTest() {
+        statisticsService.onBookChanged(BookChangedEvent.updated(
+                new BookSnapshot(1L, "War and Peace", "history", 1L, "Lev Tolstoy"),
+                new BookSnapshot(1L, "War and Peace", "drama", 2L, "Anton Chekhov")));
+        statisticsService.onBookChanged(BookChangedEvent.deleted(
+                new BookSnapshot(2L, "Anna Karenina", "history", 1L, "Lev Tolstoy")));
+
+        CatalogueStatistics statistics = statisticsService.statistics(1);
+        assertEquals(2, statistics.getTotalBooks());
+        assertEquals(Map.of("drama", 2L), statistics.getBooksPerGenre());
+        assertEquals(List.of(new AuthorBookCount(2L, "Anton Chekhov", 2)), statistics.getTopAuthors());
+        assertEquals(0, statisticsService.booksByAuthor(1L).getBooks());
+    }
+
+    @Test
+    void shouldForgetDeletedAuthorTest() {
+        statisticsService.onAuthorChanged(new AuthorChangedEvent(ChangeType.DELETED, 2L, "Anton Chekhov"));
+
+        assertThrows(AuthorNotFoundException.class, () -> statisticsService.booksByAuthor(2L));
+    }
+
+    @Test
+    void shouldCorrectDriftFromGroupByTest() {
+        when(authorRepository.countBooksPerAuthor())
+                .thenReturn(List.of(new AuthorBookCount(1L, "Lev Tolstoy", 2), new AuthorBookCount(2L, "Anton Chekhov", 1)))
+                .thenReturn(List.of(new AuthorBookCount(1L, "Lev Tolstoy", 5), new AuthorBookCount(2L, "Anton Chekhov", 1)));
+        when(bookRepository.countBooksPerGenre())
+                .thenReturn(List.of(new GenreBookCount("history", 2), new GenreBookCount("drama", 1)))
+                .thenReturn(List.of(new GenreBookCount("history", 5), new GenreBookCount("drama", 1)));
+
+        statisticsService.reconcile();
+        assertEquals(0, statisticsService.statistics(10).getLastReconciliationDrift());
+        statisticsService.reconcile();
+
+        CatalogueStatistics statistics = statisticsService.statistics(10);
+        assertEquals(6, statistics.getTotalBooks());
+        assertEquals(Map.of("drama", 1L, "history", 5L), statistics.getBooksPerGenre());
+        assertEquals(3, statistics.getLastReconciliationDrift());
+        assertNotNull(statistics.getReconciledAt());
+    }
+
+    @Test
+    void shouldRetryOnSchedulerInsteadOfWaitingWhileWriteIsInFlightTest() {
+        BookChangedEvent write = BookChangedEvent.created(
+                new BookSnapshot(4L, "The Seagull", "drama", 2L, "Anton Chekhov"));
+        statisticsService.onBookChangePublished(write);
+        when(authorRepository.countBooksPerAuthor())
+                .thenReturn(List.of(new AuthorBookCount(1L, "Lev Tolstoy", 2), new AuthorBookCount(2L, "Anton Chekhov", 2)));
+        when(bookRepository.countBooksPerGenre())
+                .thenReturn(List.of(new GenreBookCount("history", 2), new GenreBookCount("drama", 2)));
+
+        statisticsService.reconcile();
+
+        verify(authorRepository, never()).countBooksPerAuthor();
+        assertNull(statisticsService.statistics(10).getReconciledAt());
+        ArgumentCaptor<Runnable> retry = ArgumentCaptor.forClass(Runnable.class);
+        verify(taskScheduler).schedule(retry.capture(), any(Instant.class));
+
+        statisticsService.onBookChanged(write);
+        statisticsService.onBookChangeCompleted(write);
+        retry.getValue().run();
+
+        CatalogueStatistics statistics = statisticsService.statistics(10);
+        assertNotNull(statistics.getReconciledAt());
+        assertEquals(4, statistics.getTotalBooks());
+    }
+
+    private void create(long id, String genre, long authorId, String authorName) {
+        statisticsService.onBookChanged(BookChangedEvent.created(
+                new BookSnapshot(id, "Book " + id, genre, authorId, authorName)));
+    }
+}
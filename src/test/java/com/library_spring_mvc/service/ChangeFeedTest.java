@@ -0,0 +1,126 @@
+package com.library_spring_mvc.service;
+
+import com.library_spring_mvc.event.AuthorChangedEvent;
+import com.library_spring_mvc.event.BookChangedEvent;
+import com.library_spring_mvc.event.BookSnapshot;
+import com.library_spring_mvc.event.ChangeType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeFeedTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ChangeFeed changeFeed;
+
+    @AfterEach
+    void tearDown() {
+        changeFeed.shutdown();
+    }
+
+    @Test
+    void shouldDisconnectSubscriberThatFallsBehindTest() throws Exception {
+        changeFeed = new ChangeFeed(meterRegistry, 100, 2);
+        RecordingEmitter slow = new RecordingEmitter(new CountDownLatch(1));
+        RecordingEmitter fast = new RecordingEmitter(new CountDownLatch(0));
+        changeFeed.subscribe(slow, null);
+        changeFeed.subscribe(fast, null);
+
+        // the fast subscriber reads each change before the next one is published
+        for (int id = 1; id <= 5; id++) {
+            changeFeed.onBookChanged(BookChangedEvent.created(book(id)));
+            fast.awaitEvents(id);
+        }
+
+        assertEquals(1, changeFeed.subscriberCount());
+        assertEquals(1, meterRegistry.get("changefeed.disconnects").counter().count());
+        slow.release.countDown();
+        assertTrue(slow.completed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldReplayMissedChangesFromRingBufferTest() throws Exception {
+        changeFeed = new ChangeFeed(meterRegistry, 3, 10);
+        RecordingEmitter first = new RecordingEmitter(new CountDownLatch(0));
+        changeFeed.subscribe(first, null);
+        changeFeed.onBookChanged(BookChangedEvent.created(book(1)));
+        changeFeed.onAuthorChanged(new AuthorChangedEvent(ChangeType.CREATED, 2L, "Anton Chekhov"));
+        changeFeed.onBookChanged(BookChangedEvent.deleted(book(1)));
+        String firstId = eventId(first.awaitEvents(3).get(0));
+
+        RecordingEmitter resumed = new RecordingEmitter(new CountDownLatch(0));
+        changeFeed.subscribe(resumed, firstId);
+        List<String> replayed = resumed.awaitEvents(2);
+
+        assertTrue(replayed.get(0).contains("Anton Chekhov"));
+        assertTrue(replayed.get(1).contains("DELETED"));
+
+        // the change right after the first one leaves the buffer
+        changeFeed.onBookChanged(BookChangedEvent.created(book(2)));
+        changeFeed.onBookChanged(BookChangedEvent.created(book(3)));
+        RecordingEmitter late = new RecordingEmitter(new CountDownLatch(0));
+        changeFeed.subscribe(late, firstId);
+        assertTrue(late.awaitEvents(1).get(0).contains("reset"));
+    }
+
+    private static String eventId(String event) {
+        return event.substring("id:".length(), event.indexOf('\n'));
+    }
+
+    private static BookSnapshot book(long id) {
+        return new BookSnapshot(id, "Book " + id, "novel", 1L, "Lev Tolstoy");
+    }
+
+    // records every sent event as text; sends block until released, like a client that stopped reading
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final CountDownLatch release;
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private final List<String> events = new CopyOnWriteArrayList<>();
+
+        private RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException(ex);
+            }
+            String event = builder.build().stream()
+                    .map(part -> String.valueOf(part.getData()))
+                    .collect(Collectors.joining());
+            if (!event.startsWith(":")) {
+                events.add(event);
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+
+        private List<String> awaitEvents(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (events.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(count, events.size(), () -> "Events: " + events);
+            return events;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.library_spring_mvc.service;
+
+import com.library_spring_mvc.datasource.ReadYourWrites;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private MeterRegistry meterRegistry;
+    private ReadYourWrites readYourWrites;
+    private SingleFlight<Long, String> singleFlight;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        readYourWrites = new ReadYourWrites(Duration.ofMinutes(1));
+        singleFlight = new SingleFlight<>("test",
+                new StaticListableBeanFactory(Map.of("readYourWrites", readYourWrites))
+                        .getBeanProvider(ReadYourWrites.class),
+                meterRegistry);
+        executor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @Test
+    void shouldRunConcurrentIdenticalLookupsOnceTest() throws Exception {
+        AtomicInteger lookups = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int caller = 0; caller < CALLERS; caller++) {
+            results.add(executor.submit(() -> singleFlight.execute(1L, () -> {
+                lookups.incrementAndGet();
+                await(release);
+                return "War and Peace";
+            })));
+        }
+        awaitCoalesced(CALLERS - 1);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("War and Peace", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, lookups.get());
+        assertEquals(1, count("executed"));
+        assertEquals(CALLERS - 1, count("coalesced"));
+        assertEquals((double) (CALLERS - 1) / CALLERS,
+                meterRegistry.get("singleflight.coalescing.ratio").gauge().value(), 1e-9);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldShareLeaderExceptionWithFollowersTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("database unavailable");
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int caller = 0; caller < CALLERS; caller++) {
+            results.add(executor.submit(() -> singleFlight.execute(1L, () -> {
+                await(release);
+                throw failure;
+            })));
+        }
+        awaitCoalesced(CALLERS - 1);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            ExecutionException ex = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertSame(failure, ex.getCause());
+        }
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldNotCoalesceDifferentKeysOrSequentialCallsTest() {
+        AtomicInteger lookups = new AtomicInteger();
+
+        singleFlight.execute(1L, () -> "War and Peace" + lookups.incrementAndGet());
+        singleFlight.execute(1L, () -> "War and Peace" + lookups.incrementAndGet());
+        singleFlight.execute(2L, () -> "Anna Karenina" + lookups.incrementAndGet());
+
+        assertEquals(3, lookups.get());
+        assertEquals(3, count("executed"));
+        assertEquals(0, count("coalesced"));
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldNotShareCallWithClientPinnedToPrimaryTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> singleFlight.execute(1L, () -> {
+            await(release);
+            return "War and Peace";
+        }));
+        awaitExecuted(1);
+
+        readYourWrites.begin("alice");
+        readYourWrites.recordWrite();
+        try {
+            assertEquals("War and Peace, 2nd edition", singleFlight.execute(1L, () -> "War and Peace, 2nd edition"));
+        } finally {
+            readYourWrites.end();
+            release.countDown();
+        }
+
+        assertEquals("War and Peace", leader.get(5, TimeUnit.SECONDS));
+        assertEquals(0, count("coalesced"));
+        assertEquals(1, count("bypassed"));
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldNotShareCallWithReadWriteTransactionTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> singleFlight.execute(1L, () -> {
+            await(release);
+            return "War and Peace";
+        }));
+        awaitExecuted(1);
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertEquals("Resurrection", singleFlight.execute(1L, () -> "Resurrection"));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            release.countDown();
+        }
+
+        assertEquals("War and Peace", leader.get(5, TimeUnit.SECONDS));
+        assertEquals(1, count("bypassed"));
+        executor.shutdownNow();
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("singleflight.calls").tag("lookup", "test").tag("result", result).counter().count();
+    }
+
+    private void awaitCoalesced(int followers) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count("coalesced") < followers) {
+            assertTrue(System.nanoTime() < deadline, "followers did not join the lookup in flight");
+            Thread.sleep(10);
+        }
+    }
+
+    private void awaitExecuted(int calls) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count("executed") < calls) {
+            assertTrue(System.nanoTime() < deadline, "the lookup did not start");
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
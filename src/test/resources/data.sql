@@ -1,6 +1,8 @@
 INSERT INTO author (author_name) VALUES ('Lev Tolstoy');
-INSERT INTO books (genre, title, author_id) VALUES ('history', 'War and Peace', 1);
-INSERT INTO books (genre, title, author_id) VALUES ('history', 'Fillipok', 1);
-INSERT INTO books (genre, title, author_id) VALUES ('history', 'The sunday', 1);
-INSERT INTO books (genre, title, author_id) VALUES ('history', 'The childhood', 1);
-INSERT INTO books (genre, title, author_id) VALUES ('history', 'Anna Karenina', 1);
\ No newline at end of file
+INSERT INTO genres (genre_name) VALUES ('history');
+INSERT INTO books (id, genre_id, title, author_id) VALUES (1, 1, 'War and Peace', 1);
+INSERT INTO books (id, genre_id, title, author_id) VALUES (2, 1, 'Fillipok', 1);
+INSERT INTO books (id, genre_id, title, author_id) VALUES (3, 1, 'The sunday', 1);
+INSERT INTO books (id, genre_id, title, author_id) VALUES (4, 1, 'The childhood', 1);
+INSERT INTO books (id, genre_id, title, author_id) VALUES (5, 1, 'Anna Karenina', 1);
+ALTER SEQUENCE books_seq RESTART WITH 6;
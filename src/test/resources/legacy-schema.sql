@@ -0,0 +1,16 @@
+-- The schema and rows of a database that ddl-auto=update created before Flyway took over.
+CREATE TABLE author (
+    author_id   BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    author_name VARCHAR(255)
+);
+
+CREATE TABLE books (
+    id        BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    title     VARCHAR(255),
+    genre     VARCHAR(255),
+    author_id BIGINT REFERENCES author (author_id)
+);
+
+INSERT INTO author (author_name) VALUES ('Lev Tolstoy');
+INSERT INTO books (title, genre, author_id) VALUES ('War and Peace', 'novel', 1);
+INSERT INTO books (title, genre, author_id) VALUES ('Anna Karenina', 'novel', 1);